@@ -0,0 +1,137 @@
+package com.bm.library;
+
+import android.support.v4.view.ViewCompat;
+import android.view.View;
+import android.view.ViewTreeObserver;
+import android.widget.HorizontalScrollView;
+
+/**
+ * 把普通的水平滚动的View作为TabScrollLayout的页面来源，每滚动一个页面宽度算作一页，
+ * 滚动时只通知改变，页面的位置在TabScrollLayout读取时由getScrollX()计算
+ */
+public class ScrollPagerSource implements TabScrollLayout.PagerSource, ViewTreeObserver.OnScrollChangedListener {
+
+    private final View mScrollView;
+    private int mPageWidth;
+    private Callback mCallback;
+
+    /**
+     * 滚动改变后每一帧检查一次，一整帧都没有再滚动时认为滚动已经停下
+     */
+    private boolean mScrolling;
+    private boolean mScrolledSinceCheck;
+    private boolean mIdleCheckScheduled;
+    private int mLastScrollX;
+
+    private final Runnable mIdleCheck = new Runnable() {
+        @Override
+        public void run() {
+            mIdleCheckScheduled = false;
+
+            // 滚动在绘制前改变，检查在动画回调中执行，上一帧滚动过时再等一帧
+            if (mScrolledSinceCheck) {
+                mScrolledSinceCheck = false;
+                scheduleIdleCheck();
+                return;
+            }
+
+            mScrolling = false;
+            if (mCallback != null) {
+                mCallback.onPagerChanged();
+            }
+        }
+    };
+
+    /**
+     * 页面的宽度默认为View的宽度
+     */
+    public ScrollPagerSource(View scrollView) {
+        mScrollView = scrollView;
+    }
+
+    /**
+     * @param pageWidth 每一页的宽度，小于等于0时使用View的宽度
+     */
+    public void setPageWidth(int pageWidth) {
+        mPageWidth = pageWidth;
+    }
+
+    private int getPageWidth() {
+        return mPageWidth > 0 ? mPageWidth : mScrollView.getWidth();
+    }
+
+    @Override
+    public void setCallback(Callback callback) {
+        final ViewTreeObserver observer = mScrollView.getViewTreeObserver();
+        if (mCallback == null && callback != null) {
+            observer.addOnScrollChangedListener(this);
+        } else if (mCallback != null && callback == null && observer.isAlive()) {
+            observer.removeOnScrollChangedListener(this);
+        }
+        mCallback = callback;
+
+        if (callback != null) {
+            mLastScrollX = mScrollView.getScrollX();
+        } else {
+            mScrollView.removeCallbacks(mIdleCheck);
+            mIdleCheckScheduled = false;
+            mScrolling = false;
+        }
+    }
+
+    @Override
+    public float getPageOffset() {
+        final int pageWidth = getPageWidth();
+        return pageWidth > 0 ? (float) mScrollView.getScrollX() / pageWidth : 0;
+    }
+
+    @Override
+    public int getCurrentPage() {
+        return Math.round(getPageOffset());
+    }
+
+    /**
+     * 不知道是否在拖动，滚动时为SCROLL_STATE_SETTLING，滚动位置一帧没有改变后为SCROLL_STATE_IDLE，
+     * 不需要停在整页上
+     */
+    @Override
+    public int getScrollState() {
+        return mScrolling ? SCROLL_STATE_SETTLING : SCROLL_STATE_IDLE;
+    }
+
+    @Override
+    public void setCurrentPage(int page, boolean smooth) {
+        final int x = page * getPageWidth();
+        if (smooth && mScrollView instanceof HorizontalScrollView) {
+            ((HorizontalScrollView) mScrollView).smoothScrollTo(x, 0);
+        } else {
+            mScrollView.scrollTo(x, 0);
+        }
+    }
+
+    @Override
+    public void onScrollChanged() {
+        if (mCallback == null) {
+            return;
+        }
+
+        // 同一个ViewTreeObserver中其它View的滚动也会回调
+        final int scrollX = mScrollView.getScrollX();
+        if (!mScrolling && scrollX == mLastScrollX) {
+            return;
+        }
+
+        mScrolling = true;
+        mScrolledSinceCheck = true;
+        mLastScrollX = scrollX;
+        scheduleIdleCheck();
+        mCallback.onPagerChanged();
+    }
+
+    private void scheduleIdleCheck() {
+        if (!mIdleCheckScheduled) {
+            mIdleCheckScheduled = true;
+            ViewCompat.postOnAnimation(mScrollView, mIdleCheck);
+        }
+    }
+}
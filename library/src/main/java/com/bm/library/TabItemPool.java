@@ -0,0 +1,79 @@
+package com.bm.library;
+
+import android.util.SparseArray;
+import android.util.SparseIntArray;
+import android.view.View;
+
+import java.util.ArrayList;
+
+/**
+ * 按类型保存被回收的Item，可以设置给多个TabScrollLayout共享，
+ * 一个TabScrollLayout回收的Item可以被另一个TabScrollLayout复用，不需要重新创建。
+ * <p>
+ * 共享的TabScrollLayout的TabInterface需要能复用彼此的Item，只能在主线程中使用
+ *
+ * @see TabScrollLayout#setItemPool(TabItemPool)
+ * @see TabScrollLayout.ViewTypeTabInterface
+ */
+public class TabItemPool {
+
+    private static final int DEFAULT_MAX_SCRAP = 10;
+
+    private final SparseArray<ArrayList<View>> mScrapViews = new SparseArray<ArrayList<View>>();
+    private final SparseIntArray mMaxScrap = new SparseIntArray();
+
+    /**
+     * 设置每种类型最多保存的Item数量，超出的Item直接丢弃
+     */
+    public void setMaxRecycledViews(int viewType, int max) {
+        mMaxScrap.put(viewType, Math.max(0, max));
+
+        final ArrayList<View> scrap = mScrapViews.get(viewType);
+        if (scrap != null) {
+            while (scrap.size() > max) {
+                scrap.remove(scrap.size() - 1);
+            }
+        }
+    }
+
+    /**
+     * @return 一个被回收的viewType类型的Item，没有时返回null
+     */
+    public View getRecycledView(int viewType) {
+        final ArrayList<View> scrap = mScrapViews.get(viewType);
+        if (scrap == null || scrap.isEmpty()) {
+            return null;
+        }
+        return scrap.remove(scrap.size() - 1);
+    }
+
+    /**
+     * 回收一个已经从父布局中移除的Item
+     */
+    public void putRecycledView(int viewType, View v) {
+        ArrayList<View> scrap = mScrapViews.get(viewType);
+        if (scrap == null) {
+            scrap = new ArrayList<View>();
+            mScrapViews.put(viewType, scrap);
+        }
+
+        if (scrap.size() < mMaxScrap.get(viewType, DEFAULT_MAX_SCRAP)) {
+            scrap.add(v);
+        }
+    }
+
+    /**
+     * @return 保存的viewType类型的Item数量
+     */
+    public int getRecycledViewCount(int viewType) {
+        final ArrayList<View> scrap = mScrapViews.get(viewType);
+        return scrap == null ? 0 : scrap.size();
+    }
+
+    /**
+     * 丢弃所有保存的Item
+     */
+    public void clear() {
+        mScrapViews.clear();
+    }
+}
@@ -0,0 +1,147 @@
+package com.bm.library;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.util.SparseArray;
+
+import java.util.ArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * 在后台线程中调用AsyncTabInterface#prepareTabItem准备Item的内容，从anchor开始向两边准备，
+ * 准备好的结果分批交回主线程
+ */
+final class TabItemPreparer implements Runnable {
+
+    private static ExecutorService sExecutor;
+
+    private final TabScrollLayout.AsyncTabInterface mAdapter;
+    private final int mCount;
+    private final int mAnchor;
+
+    /**
+     * 开始准备时每个Item的宽度，已经测量过的Item不需要再准备
+     */
+    private final int[] mItemWidths;
+
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private final Runnable mDeliver;
+
+    private final ArrayList<Object> mResults = new ArrayList<Object>();
+    private boolean mDeliverPosted;
+
+    private volatile boolean mCancelled;
+
+    /**
+     * @param itemWidths 每个Item的宽度，为null或者小于0的Item需要准备，会被复制
+     * @param deliver    有新的结果时在主线程中调用，需要调用drainTo取走结果
+     */
+    TabItemPreparer(TabScrollLayout.AsyncTabInterface adapter, int count, int anchor, int[] itemWidths,
+                    Runnable deliver) {
+        mAdapter = adapter;
+        mCount = count;
+        mAnchor = Math.max(0, Math.min(anchor, count - 1));
+        mItemWidths = itemWidths == null || itemWidths.length != count ? null : itemWidths.clone();
+        mDeliver = deliver;
+    }
+
+    void start() {
+        getExecutor().execute(this);
+    }
+
+    /**
+     * 取消后不会再准备新的Item，已经准备好还没有取走的结果也会被丢弃
+     */
+    void cancel() {
+        mCancelled = true;
+        mHandler.removeCallbacks(mDeliver);
+    }
+
+    @Override
+    public void run() {
+        for (int i = 0; i < mCount * 2; i++) {
+            if (mCancelled) {
+                return;
+            }
+
+            final int position = getOutwardPosition(mAnchor, i);
+            if (position < 0 || position >= mCount || (mItemWidths != null && mItemWidths[position] >= 0)) {
+                continue;
+            }
+
+            final Object prepared = prepare(mAdapter, position);
+
+            synchronized (this) {
+                mResults.add(position);
+                mResults.add(prepared);
+
+                if (!mDeliverPosted && !mCancelled) {
+                    mDeliverPosted = true;
+                    mHandler.post(mDeliver);
+                }
+            }
+        }
+    }
+
+    /**
+     * 在主线程中取走已经准备好的结果
+     *
+     * @return 是否取到了新的结果
+     */
+    boolean drainTo(SparseArray<Object> prepared) {
+        synchronized (this) {
+            mDeliverPosted = false;
+
+            if (mCancelled || mResults.isEmpty()) {
+                mResults.clear();
+                return false;
+            }
+
+            for (int i = 0; i < mResults.size(); i += 2) {
+                prepared.put((Integer) mResults.get(i), mResults.get(i + 1));
+            }
+            mResults.clear();
+            return true;
+        }
+    }
+
+    /**
+     * 调用adapter.prepareTabItem，主线程中需要马上使用还没有准备好的Item时也通过这里调用，
+     * 后台线程正在准备同一个adapter的Item时会等待这一个Item准备完，不同的adapter之间互不影响
+     */
+    static Object prepare(TabScrollLayout.AsyncTabInterface adapter, int position) {
+        synchronized (adapter) {
+            return adapter.prepareTabItem(position);
+        }
+    }
+
+    /**
+     * 从anchor开始向两边展开的第index个位置，依次为anchor, anchor + 1, anchor - 1, anchor + 2...
+     */
+    static int getOutwardPosition(int anchor, int index) {
+        return (index & 1) == 0 ? anchor + index / 2 : anchor - (index + 1) / 2;
+    }
+
+    private static synchronized ExecutorService getExecutor() {
+        if (sExecutor == null) {
+            sExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(final Runnable r) {
+                    final Thread thread = new Thread(new Runnable() {
+                        @Override
+                        public void run() {
+                            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                            r.run();
+                        }
+                    }, "TabScrollLayout-prepare");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return sExecutor;
+    }
+}
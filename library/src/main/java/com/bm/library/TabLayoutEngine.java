@@ -0,0 +1,263 @@
+package com.bm.library;
+
+/**
+ * TabScrollLayout中Item位置的计算，不依赖Android的View，可以在JVM上测试，也可以在后台线程中提前计算。
+ * <p>
+ * 输入每个Item的宽度和控件的宽度，计算每个Item的位置、总宽度以及选中Item时需要滚动到的位置
+ */
+public final class TabLayoutEngine {
+
+    /**
+     * 惯性滚动停下的位置和Item的对齐方式
+     */
+    public enum SnapMode {
+        /**
+         * 不对齐，停在惯性滚动自然停下的位置
+         */
+        NONE,
+        /**
+         * Item的左边和控件的左边对齐
+         */
+        START,
+        /**
+         * Item的中间和控件的中间对齐
+         */
+        CENTER,
+        /**
+         * Item的右边和控件的右边对齐
+         */
+        END
+    }
+
+    private final TabOffsetTable mTable = new TabOffsetTable();
+
+    /**
+     * 每个Item之间的距离
+     */
+    private int mSpacing;
+
+    /**
+     * Item是否平分控件的宽度
+     */
+    private boolean mAverage;
+
+    private int mContainerWidth;
+    private int mTotalWidth;
+
+    /**
+     * 自动移动显示下一个条目所移动的距离
+     */
+    private int mLitterMove;
+
+    public void setSpacing(int spacing) {
+        mSpacing = spacing;
+    }
+
+    public void setAverage(boolean average) {
+        mAverage = average;
+    }
+
+    /**
+     * @return 平分宽度时是否生效，没有Item时不生效
+     */
+    public boolean isAverage(int count) {
+        return mAverage && count > 0;
+    }
+
+    /**
+     * @return 平分宽度时每个Item的宽度
+     */
+    public int getAverageItemWidth(int containerWidth, int count) {
+        return count > 0 ? containerWidth / count : 0;
+    }
+
+    /**
+     * 计算每个Item的位置，Item的总宽度不足一屏时把剩下的宽度平均分给每个Item的两边
+     *
+     * @param itemWidths 每个Item的宽度，只使用前count个
+     */
+    public void layout(int[] itemWidths, int count, int containerWidth) {
+        mTable.reset(count);
+        mContainerWidth = containerWidth;
+        mLitterMove = computeLitterMove(containerWidth);
+
+        if (count == 0) {
+            mTotalWidth = 0;
+            return;
+        }
+
+        if (isAverage(count)) {
+            int left = 0;
+            for (int i = 0; i < count; i++) {
+                mTable.setItem(i, left, itemWidths[i]);
+                left += itemWidths[i];
+            }
+            mTotalWidth = containerWidth;
+            return;
+        }
+
+        int contentWidth = mSpacing;
+        for (int i = 0; i < count; i++) {
+            contentWidth += itemWidths[i] + mSpacing;
+        }
+
+        final int margin = contentWidth < containerWidth ? (containerWidth - contentWidth) / count / 2 : 0;
+
+        int left = 0;
+        for (int i = 0; i < count; i++) {
+            left += mSpacing + margin;
+            mTable.setItem(i, left, itemWidths[i]);
+            left += itemWidths[i] + margin;
+        }
+        mTotalWidth = left + mSpacing;
+    }
+
+    /**
+     * 清除计算结果
+     */
+    public void reset() {
+        mTable.reset(0);
+        mTotalWidth = 0;
+    }
+
+    public int getCount() {
+        return mTable.getCount();
+    }
+
+    public int getLeft(int position) {
+        return mTable.getLeft(position);
+    }
+
+    public int getWidth(int position) {
+        return mTable.getWidth(position);
+    }
+
+    public int getRight(int position) {
+        return mTable.getRight(position);
+    }
+
+    /**
+     * 找到x坐标所在的Item，x在两个Item之间时返回左边的Item，没有Item时返回-1
+     */
+    public int findPosition(int x) {
+        return mTable.findPosition(x);
+    }
+
+    /**
+     * @return 所有Item加上间距的总宽度，平分宽度时就是控件的宽度
+     */
+    public int getTotalWidth() {
+        return mTotalWidth;
+    }
+
+    public int getContainerWidth() {
+        return mContainerWidth;
+    }
+
+    public int getLitterMove() {
+        return mLitterMove;
+    }
+
+    public boolean needScroll() {
+        return mTotalWidth > mContainerWidth;
+    }
+
+    /**
+     * @return 能滚动的最大距离
+     */
+    public int getMaxScrollX() {
+        return Math.max(0, mTotalWidth - mContainerWidth);
+    }
+
+    public int clampScrollX(int scrollX) {
+        return Math.max(0, Math.min(scrollX, getMaxScrollX()));
+    }
+
+    /**
+     * 选中position位置的Item后布局应该滚动到的位置，让上一个或者下一个Item露出一部分
+     *
+     * @return 不需要滚动时返回scrollX
+     */
+    public int computeRevealScrollX(int position, int scrollX) {
+        if (!needScroll()) {
+            return scrollX;
+        }
+
+        final int left = mTable.getLeft(position);
+
+        if (mLitterMove > left - scrollX) {
+            int deltaX = scrollX - left + mLitterMove;
+
+            if (deltaX > scrollX) {
+                deltaX = scrollX;
+            }
+            return scrollX - deltaX;
+        }
+
+        final int scrollRight = scrollX + mContainerWidth;
+        final int hide = mTable.getRight(position) - scrollRight;
+
+        if (hide > 0 || Math.abs(hide) < mLitterMove) {
+            int deltaX = hide + mLitterMove;
+
+            if (scrollRight + deltaX > mTotalWidth) {
+                deltaX = mTotalWidth - scrollRight;
+            }
+            return scrollX + deltaX;
+        }
+        return scrollX;
+    }
+
+    /**
+     * 找到离scrollX最近的对齐位置
+     *
+     * @param scrollX 没有对齐时停下的位置
+     * @return 对齐后的位置，不需要对齐或者不能滚动时返回限制在滚动范围内的scrollX
+     */
+    public int computeSnapScrollX(int scrollX, SnapMode mode) {
+        if (mode == SnapMode.NONE || !needScroll() || mTable.getCount() == 0) {
+            return clampScrollX(scrollX);
+        }
+
+        // 对齐线在内容中的位置，找到对齐点离对齐线最近的Item
+        final int line;
+        if (mode == SnapMode.START) {
+            line = scrollX;
+        } else if (mode == SnapMode.CENTER) {
+            line = scrollX + mContainerWidth / 2;
+        } else {
+            line = scrollX + mContainerWidth;
+        }
+
+        int position = Math.max(0, mTable.findPosition(line));
+        if (position + 1 < mTable.getCount()
+                && Math.abs(getSnapPoint(position + 1, mode) - line) < Math.abs(getSnapPoint(position, mode) - line)) {
+            position++;
+        }
+
+        return clampScrollX(scrollX + getSnapPoint(position, mode) - line);
+    }
+
+    private int getSnapPoint(int position, SnapMode mode) {
+        if (mode == SnapMode.START) {
+            return mTable.getLeft(position);
+        } else if (mode == SnapMode.CENTER) {
+            return mTable.getLeft(position) + mTable.getWidth(position) / 2;
+        } else {
+            return mTable.getRight(position);
+        }
+    }
+
+    /**
+     * 根据控件的宽度计算自动移动显示下一个条目所移动的距离
+     */
+    public static int computeLitterMove(int containerWidth) {
+        if (containerWidth < 300) {
+            return containerWidth / 5;
+        } else if (containerWidth < 600) {
+            return (int) (containerWidth / 4.5f);
+        } else {
+            return (int) (containerWidth / 3.5);
+        }
+    }
+}
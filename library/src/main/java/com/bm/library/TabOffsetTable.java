@@ -0,0 +1,66 @@
+package com.bm.library;
+
+/**
+ * 每个Item左边位置和宽度的表，只在测量或布局改变后重新填充，
+ * 通过position取位置是O(1)，通过坐标找position是O(log n)
+ */
+final class TabOffsetTable {
+
+    private int[] mLefts = new int[0];
+    private int[] mWidths = new int[0];
+    private int mCount;
+
+    /**
+     * 重新设置Item的数量，之后需要通过setItem填充每个Item
+     */
+    void reset(int count) {
+        if (mLefts.length < count) {
+            mLefts = new int[count];
+            mWidths = new int[count];
+        }
+        mCount = count;
+    }
+
+    void setItem(int position, int left, int width) {
+        mLefts[position] = left;
+        mWidths[position] = width;
+    }
+
+    int getCount() {
+        return mCount;
+    }
+
+    int getLeft(int position) {
+        return mLefts[position];
+    }
+
+    int getWidth(int position) {
+        return mWidths[position];
+    }
+
+    int getRight(int position) {
+        return mLefts[position] + mWidths[position];
+    }
+
+    /**
+     * 找到x坐标所在的Item，x在两个Item之间时返回左边的Item，没有Item时返回-1
+     */
+    int findPosition(int x) {
+        if (mCount == 0) {
+            return -1;
+        }
+
+        int low = 0;
+        int high = mCount - 1;
+
+        while (low < high) {
+            final int mid = (low + high + 1) >>> 1;
+            if (mLefts[mid] <= x) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+}
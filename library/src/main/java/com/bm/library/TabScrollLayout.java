@@ -1,19 +1,41 @@
 package com.bm.library;
 
 import android.content.Context;
+import android.content.res.ColorStateList;
+import android.database.Observable;
 import android.graphics.Canvas;
-import android.os.Handler;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Typeface;
+import android.graphics.drawable.Drawable;
+import android.os.Build;
+import android.os.Parcel;
+import android.os.Parcelable;
+import android.os.Trace;
+import android.support.v4.util.LongSparseArray;
 import android.support.v4.view.PagerAdapter;
+import android.support.v4.view.VelocityTrackerCompat;
+import android.support.v4.view.ViewCompat;
 import android.support.v4.view.ViewPager;
+import android.text.BoringLayout;
+import android.text.Layout;
+import android.text.StaticLayout;
+import android.text.TextPaint;
+import android.text.TextUtils;
 import android.util.AttributeSet;
-import android.view.GestureDetector;
+import android.util.SparseArray;
 import android.view.MotionEvent;
+import android.view.SoundEffectConstants;
+import android.view.VelocityTracker;
 import android.view.View;
+import android.view.ViewConfiguration;
 import android.view.ViewGroup;
+import android.view.ViewParent;
 import android.view.animation.AccelerateDecelerateInterpolator;
-import android.view.animation.LinearInterpolator;
+import android.view.animation.AnimationUtils;
 import android.widget.OverScroller;
-import android.widget.Scroller;
+
+import java.util.Arrays;
 
 /**
  * 二级菜单
@@ -22,7 +44,7 @@ import android.widget.Scroller;
  * @date 2014-6-20
  */
 @SuppressWarnings("ResourceType")
-public class TabScrollLayout extends ViewGroup implements GestureDetector.OnGestureListener, View.OnClickListener {
+public class TabScrollLayout extends ViewGroup implements View.OnClickListener {
 
     public interface TabInterface {
         View getTabView();
@@ -32,6 +54,202 @@ public class TabScrollLayout extends ViewGroup implements GestureDetector.OnGest
         int getCount();
     }
 
+    /**
+     * 每个Item有稳定id的TabInterface，数据整体改变后选中的Item按id保持不变，也可以通过id找到Item的位置
+     *
+     * @see TabScrollLayout#findPositionForItemId(long)
+     */
+    public interface StableIdTabInterface extends TabInterface {
+        /**
+         * @return position位置的Item的id，同一个Item在数据改变前后的id相同
+         */
+        long getItemId(int position);
+    }
+
+    /**
+     * 支持复用Item的TabInterface，虚拟化模式下移出可见区域的Item以及数据整体改变前的Item
+     * 会通过convertView交回来重新绑定
+     */
+    public interface RecycleTabInterface extends TabInterface {
+        /**
+         * @param convertView 可以复用的Item，可能为null
+         */
+        View getTabItem(int position, View convertView);
+    }
+
+    /**
+     * Item有多种类型的RecycleTabInterface，convertView只会是同一种类型的Item
+     *
+     * @see TabItemPool
+     */
+    public interface ViewTypeTabInterface extends RecycleTabInterface {
+        /**
+         * @return position位置的Item的类型，不需要连续
+         */
+        int getItemViewType(int position);
+    }
+
+    /**
+     * 可以在后台线程中准备Item内容的TabInterface，比如提前计算文字的排版、解码图片，
+     * 开启异步模式后准备好的Item才会被创建，并且每一帧只创建一部分，可见区域的Item优先
+     *
+     * @see TabScrollLayout#setAsyncItemPreparation(boolean)
+     */
+    public interface AsyncTabInterface extends TabInterface {
+        /**
+         * 异步模式下在后台线程中调用，不能创建或者访问View。
+         * 需要马上显示还没有准备好的Item(或者没有开启异步模式)时也会在主线程中调用，
+         * 调用时锁住这个AsyncTabInterface对象，同一个对象不会被同时调用
+         *
+         * @return 准备好的内容，会交给bindPreparedTabItem
+         */
+        Object prepareTabItem(int position);
+
+        /**
+         * 在主线程中把准备好的内容设置给getTabItem创建的Item
+         */
+        void bindPreparedTabItem(int position, View itemView, Object prepared);
+    }
+
+    /**
+     * 只有文字的TabInterface，TabScrollLayout直接绘制每个Item的文字，不会调用getTabItem创建View(可以返回null)，
+     * 每个Item只保留宽度，文字的排版只缓存可见区域内的，Item非常多时可以省下大量的View
+     *
+     * @see TabScrollLayout#setTabTextSize(float)
+     * @see TabScrollLayout#setTabTextColor(ColorStateList)
+     */
+    public interface TextTabInterface extends TabInterface {
+        /**
+         * @return position位置的Item的文字，可以带有Span
+         */
+        CharSequence getTabText(int position);
+    }
+
+    /**
+     * 数据改变的观察者，position都是改变之后的位置
+     */
+    public interface TabDataObserver {
+        void onChanged();
+
+        void onItemChanged(int position);
+
+        void onItemInserted(int position);
+
+        void onItemRemoved(int position);
+
+        void onItemMoved(int fromPosition, int toPosition);
+    }
+
+    /**
+     * 可以被观察的TabInterface，设置给TabScrollLayout后会注册一个TabDataObserver，
+     * 数据改变时通知观察者就只会更新改变的Item，可以使用TabDataObservable来实现
+     */
+    public interface ObservableTabInterface extends TabInterface {
+        void registerTabDataObserver(TabDataObserver observer);
+
+        void unregisterTabDataObserver(TabDataObserver observer);
+    }
+
+    /**
+     * 方便ObservableTabInterface分发数据改变的通知
+     */
+    public static class TabDataObservable extends Observable<TabDataObserver> {
+
+        public void notifyChanged() {
+            for (int i = mObservers.size() - 1; i >= 0; i--) {
+                mObservers.get(i).onChanged();
+            }
+        }
+
+        public void notifyItemChanged(int position) {
+            for (int i = mObservers.size() - 1; i >= 0; i--) {
+                mObservers.get(i).onItemChanged(position);
+            }
+        }
+
+        public void notifyItemInserted(int position) {
+            for (int i = mObservers.size() - 1; i >= 0; i--) {
+                mObservers.get(i).onItemInserted(position);
+            }
+        }
+
+        public void notifyItemRemoved(int position) {
+            for (int i = mObservers.size() - 1; i >= 0; i--) {
+                mObservers.get(i).onItemRemoved(position);
+            }
+        }
+
+        public void notifyItemMoved(int fromPosition, int toPosition) {
+            for (int i = mObservers.size() - 1; i >= 0; i--) {
+                mObservers.get(i).onItemMoved(fromPosition, toPosition);
+            }
+        }
+    }
+
+    /**
+     * 控制Tab位置的页面来源，比如ViewPager，页面滚动时只通知改变，TabScrollLayout在下一帧读取一次当前的状态
+     *
+     * @see ViewPagerSource
+     * @see ScrollPagerSource
+     */
+    public interface PagerSource {
+        int SCROLL_STATE_IDLE = 0;
+        int SCROLL_STATE_DRAGGING = 1;
+        int SCROLL_STATE_SETTLING = 2;
+
+        /**
+         * 页面改变的通知，同一帧内多次通知只会读取一次状态
+         */
+        interface Callback {
+            void onPagerChanged();
+        }
+
+        /**
+         * @param callback 为null时解除绑定，不再通知
+         */
+        void setCallback(Callback callback);
+
+        /**
+         * @return 当前页面的位置加上滚动的偏移，比如1.5表示在第1页和第2页的中间
+         */
+        float getPageOffset();
+
+        /**
+         * @return 当前选中的页面
+         */
+        int getCurrentPage();
+
+        /**
+         * @return SCROLL_STATE_开头的常量
+         */
+        int getScrollState();
+
+        /**
+         * 点击Item时切换到对应的页面
+         */
+        void setCurrentPage(int page, boolean smooth);
+    }
+
+    /**
+     * 自己绘制Tab，不需要创建View
+     */
+    public interface IndicatorRenderer {
+        /**
+         * 在布局的坐标系(包括滚动的距离)中绘制Tab
+         */
+        void draw(Canvas canvas, float left, float top, float right, float bottom);
+    }
+
+    /**
+     * 性能统计的回调
+     */
+    public interface OnMetricsListener {
+        /**
+         * 一次手势(从按下到滚动停止)结束后回调这次手势期间的统计
+         */
+        void onGestureMetrics(TabScrollMetrics gestureMetrics);
+    }
+
     public enum TabState {
         TOP, BOTTOM, FILL
     }
@@ -66,7 +284,16 @@ public class TabScrollLayout extends ViewGroup implements GestureDetector.OnGest
         void onScroll(boolean atStart, boolean atEnd, boolean atMiddle, boolean noScroll);
     }
 
-    private final int ID_TAB_LAYOUT = 10086;
+    /**
+     * 连续的滚动进度监听，同一帧内多次滚动只回调一次
+     */
+    public interface OnScrollProgressListener {
+        /**
+         * @param scrollX  当前滚动的距离
+         * @param progress 滚动的进度，0为最左边，1为最右边，超出边界时小于0或者大于1
+         */
+        void onScrollProgress(int scrollX, float progress);
+    }
 
     /**
      * 整个空间的宽度，包括滚动部分的
@@ -78,14 +305,56 @@ public class TabScrollLayout extends ViewGroup implements GestureDetector.OnGest
      */
     private int mLayoutWidth;
 
-    private GestureDetector mDetector;
     private OverScroller mScroller;
 
+    private static final int INVALID_POINTER = -1;
+
+    /**
+     * 整个控件复用一个VelocityTracker，拖动和惯性滚动时不需要分配对象
+     */
+    private VelocityTracker mVelocityTracker;
+    private int mTouchSlop;
+    private int mMinimumVelocity;
+    private int mMaximumVelocity;
+
+    private boolean mIsBeingDragged;
+    private int mActivePointerId = INVALID_POINTER;
+    private float mLastMotionX;
+    private float mInitialMotionX;
+    private float mInitialMotionY;
+
     /**
      * 滚动监听
      */
     private OnScrollListener mScrollListener;
 
+    private static final int SCROLL_EDGE_UNKNOWN = -1;
+    private static final int SCROLL_EDGE_NO_SCROLL = 0;
+    private static final int SCROLL_EDGE_START = 1;
+    private static final int SCROLL_EDGE_MIDDLE = 2;
+    private static final int SCROLL_EDGE_END = 3;
+
+    /**
+     * 上一次通知给OnScrollListener的滚动状态，只有状态改变时才通知
+     */
+    private int mScrollEdgeState = SCROLL_EDGE_UNKNOWN;
+
+    private OnScrollProgressListener mScrollProgressListener;
+    private boolean mScrollProgressScheduled;
+
+    private final Runnable mScrollProgressFrame = new Runnable() {
+        @Override
+        public void run() {
+            mScrollProgressScheduled = false;
+
+            if (mScrollProgressListener != null) {
+                final int scrollX = getScrollX();
+                final int maxScrollX = mLayoutEngine.getMaxScrollX();
+                mScrollProgressListener.onScrollProgress(scrollX, maxScrollX == 0 ? 0 : (float) scrollX / maxScrollX);
+            }
+        }
+    };
+
     /**
      * 每个选项点击监听
      */
@@ -96,11 +365,6 @@ public class TabScrollLayout extends ViewGroup implements GestureDetector.OnGest
     private TabInterface mTabInterface;
     private ViewPager mViewPager;
 
-    /**
-     * 自动移动显示下一个条目所移动的距离
-     */
-    private int mLitterMove;
-
     /**
      * 可以滚动的条
      */
@@ -112,693 +376,3149 @@ public class TabScrollLayout extends ViewGroup implements GestureDetector.OnGest
      * 当前是否已经附加到当前界面上,防止第一次设置item的时候滚动条显示
      */
     private boolean isAttachedToWindow;
-    private boolean isEventCancel;
 
     /**
      * 当前选中的item的位置
      */
     private int mCurrentPosition;
 
-    private int mVerticalSpace;
-    private int mTabViewSpace;
+    /**
+     * 选中的Item对应的滚动位置和Tab是否已经确定，没有确定时在下一次布局中直接移动过去，不做动画
+     */
+    private boolean mSelectionResolved;
 
-    private boolean mOverMoveSupport = true;
-    private boolean mTabWidthAverage = false;
+    /**
+     * 显示之前通过scrollToPosition选中的Item，确定位置后还需要回调OnItemSelectListener并设置页面
+     */
+    private boolean mSelectionNotifyPending;
 
-    private boolean mTabLayoutAbove = true;
+    /**
+     * 恢复状态时保存的滚动位置，在下一次确定选中的Item时使用
+     */
+    private int mRestoredScrollX = -1;
 
-    public TabScrollLayout(Context context, AttributeSet attrs) {
-        super(context, attrs);
-        init(context);
-        initDefaultValue();
-    }
+    private static final long NO_ID = -1;
 
-    public TabScrollLayout(Context context) {
-        super(context);
-        init(context);
-        initDefaultValue();
-    }
+    /**
+     * TabInterface实现了StableIdTabInterface时选中的Item的id
+     */
+    private long mSelectedItemId = NO_ID;
 
-    @Override
-    protected void onAttachedToWindow() {
-        super.onAttachedToWindow();
-        isAttachedToWindow = true;
+    /**
+     * id到position的表，数据改变后第一次查找时重新建立
+     */
+    private final LongSparseArray<Integer> mItemIdPositions = new LongSparseArray<Integer>();
+    private boolean mItemIdPositionsValid;
 
-        postDelayed(new Runnable() {
-            public void run() {
-                if (mTabInterface != null) {
-                    onClick(getChildAt(mCurrentPosition));
-                }
-            }
-        }, 300);
-    }
+    private int mVerticalSpace;
+    private int mTabViewSpace;
 
-    private void init(Context ctx) {
-        mDetector = new GestureDetector(ctx, this);
-        mScroller = new OverScroller(ctx, new AccelerateDecelerateInterpolator());
-        setStaticTransformationsEnabled(true);
-    }
+    private boolean mOverMoveSupport = true;
 
-    private void initDefaultValue() {
-        mVerticalSpace = dp2px(3);
-        mTabViewSpace = dp2px(2);
-    }
+    /**
+     * 惯性滚动停下时和Item的对齐方式
+     */
+    private TabLayoutEngine.SnapMode mSnapMode = TabLayoutEngine.SnapMode.NONE;
+    private boolean mTabWidthAverage = false;
 
-    // DataSetObservable
-    private void reLayoutViews() {
-        removeAllViews();
-        scrollTo(0, 0);
+    private boolean mTabLayoutAbove = true;
 
-        if (mTabInterface == null) {
-            return;
-        }
+    /**
+     * 设置了Drawable或IndicatorRenderer时在dispatchDraw中直接绘制Tab，不再使用getTabView()
+     */
+    private Drawable mIndicatorDrawable;
+    private IndicatorRenderer mIndicatorRenderer;
+    private int mIndicatorHeight = -1;
 
-        final int length = mTabInterface.getCount();
-        // final int padding = DisplayUtils.dip2px(getContext(), 5);
+    /**
+     * Tab当前的位置和宽度，以及动画的起点和终点
+     */
+    private float mIndicatorLeft;
+    private float mIndicatorWidth;
+    private float mIndicatorFromLeft;
+    private float mIndicatorFromWidth;
+    private float mIndicatorToLeft;
+    private float mIndicatorToWidth;
+    private long mIndicatorAnimStartTime = -1;
 
-        for (int i = 0; i < length; i++) {
-            LayoutParams params = new LayoutParams(LayoutParams.WRAP_CONTENT, LayoutParams.WRAP_CONTENT);
-            params.bottomMargin = mTabViewSpace;
-            params.leftMargin = params.rightMargin = mVerticalSpace;
-            View v = mTabInterface.getTabItem(i);
-            v.setClickable(true);
-            v.setFocusable(true);
-            addView(v, params);
+    /**
+     * 上一次绘制的Tab的左右位置，Tab移动时只刷新移动前后的区域
+     */
+    private int mDrawnIndicatorLeft;
+    private int mDrawnIndicatorRight;
 
-            v.setOnClickListener(this);
-            v.setId(i);
-        }
+    /**
+     * 选中Item时布局滚动和Tab移动的时间，两个动画在同一帧结束
+     */
+    private static final int SELECT_ANIM_DURATION = 250;
 
-        addTabView();
+    /**
+     * 是否已经请求了下一帧的动画
+     */
+    private boolean mAnimationScheduled;
 
-        changScrollState();
-    }
+    /**
+     * 是否在布局滚动和页面滚动期间给Item开启硬件层
+     */
+    private boolean mAnimationLayersEnabled;
 
-    public int dp2px(int dp) {
-        return (int) (getResources().getDisplayMetrics().density * dp);
-    }
+    /**
+     * Item当前是否开启了硬件层
+     */
+    private boolean mItemLayersActive;
 
-    private void addTabView() {
-        if (mTabLayout == null) {
-            mTabLayout = new TabLayout(getContext());
-            mTabLayout.setTabView(mTabInterface.getTabView());
-            mTabLayout.setLayoutParams(new LayoutParams(LayoutParams.MATCH_PARENT, LayoutParams.WRAP_CONTENT));
-            mTabLayout.setId(ID_TAB_LAYOUT);
-        }
+    /**
+     * 这一次滚动是否已经判断过能不能开启硬件层，滚动开始时只判断一次，停下或者重新绑定后重新判断
+     */
+    private boolean mItemLayersChecked;
 
-        addView(mTabLayout);
-    }
+    /**
+     * 开启硬件层的Item的总面积最多是可见区域的几倍，超过时不开启，避免Item很多时占用大量的显存
+     */
+    private static final int ANIMATION_LAYER_MAX_SCREENS = 3;
 
-    private void measureTab(int maxHeight) {
-        if (mTabLayout != null) {
-            final int widthSpac = MeasureSpec.makeMeasureSpec(mWidth, MeasureSpec.EXACTLY);
-            final int heightSpac = MeasureSpec.makeMeasureSpec(maxHeight, MeasureSpec.AT_MOST);
-            mTabLayout.measure(widthSpac, heightSpac);
-        }
-    }
+    /**
+     * 每一帧用同一个时间推进布局的滚动和Tab的动画，都结束后不再请求下一帧
+     */
+    private final Runnable mAnimationFrame = new Runnable() {
+        @Override
+        public void run() {
+            final long start = beginSection(TabScrollMetrics.SECTION_ANIMATION_FRAME);
+            mAnimationScheduled = false;
 
-    @Override
-    protected void dispatchDraw(Canvas canvas) {
-        if (mTabLayoutAbove) {
-            super.dispatchDraw(canvas);
-        } else {
-            if (mTabLayout != null) {
-                drawChild(canvas, mTabLayout, getDrawingTime());
-            }
+            final long frameTime = AnimationUtils.currentAnimationTimeMillis();
+            final boolean indicatorMoved = computeIndicatorOffset(frameTime);
+            final boolean scrolling = mScroller.computeScrollOffset();
 
-            final int childCount = getChildCount();
-            for (int i = 0; i < childCount; i++) {
-                final View child = getChildAt(i);
-                if (child.getId() != ID_TAB_LAYOUT) {
-                    drawChild(canvas, child, getDrawingTime());
-                }
+            if (indicatorMoved) {
+                applyIndicator();
             }
-        }
-    }
-
-    @Override
-    public void onClick(View v) {
-        mCurrentPosition = v.getId();
 
-        final int count = getChildCount();
-        for (int i = 0; i < count; i++) {
-            final View child = getChildAt(i);
+            boolean scrolled = false;
+            if (scrolling) {
+                // 滚动位置改变时scrollTo会刷新整个布局，不需要再单独刷新，取整后没有改变时不会刷新
+                final int oldScrollX = getScrollX();
+                scrollTo(mScroller.getCurrX(), mScroller.getCurrY());
+                scrolled = getScrollX() != oldScrollX;
+            }
 
-            if (child.getId() == ID_TAB_LAYOUT) {
-                continue;
+            if (!scrolled && indicatorMoved && isIndicatorDrawn()) {
+                // 只有Tab移动时只刷新Tab经过的区域，TabLayout中的Tab重新布局时会自己刷新
+                invalidateIndicator();
             }
 
-            if (child != v) {
-                child.setSelected(false);
+            if (scrolling || mIndicatorAnimStartTime >= 0) {
+                startAnimationFrames();
             } else {
-                child.setSelected(true);
+                changScrollState();
+            }
 
-                mHandler.sendEmptyMessageDelayed(child.getId(), 50);
+            updateItemLayers();
 
-                if (mSelectListener != null) {
-                    mSelectListener.onItemSelect(i, v);
-                }
+            endSection(TabScrollMetrics.SECTION_ANIMATION_FRAME, start);
 
-                if (mViewPager != null) {
-                    mViewPager.setCurrentItem(i);
-                }
+            if (!mAnimationScheduled) {
+                finishGestureMetrics();
             }
         }
-    }
+    };
 
-    private boolean isViewVisitableFullInScreen(int viewId) {
-        return isViewVisitableFullInScreen(findViewById(viewId));
-    }
+    /**
+     * 是否只保留可见区域内的Item，TabInterface实现了RecycleTabInterface时才生效
+     *
+     * @see #isVirtualized()
+     */
+    private boolean mVirtualized = false;
 
-    private boolean isViewVisitableFullInScreen(View view) {
-        return view.getLeft() >= getScrollX() && view.getRight() <= getScrollX() + mLayoutWidth;
+    /**
+     * 虚拟化模式下可见区域两侧额外保留的Item数量
+     */
+    private int mOffscreenTabLimit = 2;
+
+    /**
+     * 是否异步准备Item，开启后和虚拟化模式一样通过position管理Item
+     */
+    private boolean mAsyncItems = false;
+
+    /**
+     * 异步模式下每一帧用来创建和测量Item的时间
+     */
+    private static final long PREPARE_FRAME_BUDGET_NANOS = 4 * 1000 * 1000L;
+
+    private TabItemPreparer mItemPreparer;
+
+    /**
+     * 已经准备好的Item内容，key为position，非虚拟化模式下绑定后就不再保留，
+     * 虚拟化模式下只保留可见区域两侧范围内的和还没有测量的
+     */
+    private final SparseArray<Object> mPreparedItems = new SparseArray<Object>();
+
+    /**
+     * 异步模式下还没有测量的Item用估计的宽度参与布局
+     */
+    private int[] mEstimatedWidths;
+
+    private boolean mPrepareFrameScheduled;
+
+    private final Runnable mPrepareFrame = new Runnable() {
+        @Override
+        public void run() {
+            mPrepareFrameScheduled = false;
+            prepareItemsInFrame();
+        }
+    };
+
+    private final Runnable mDeliverPreparedItems = new Runnable() {
+        @Override
+        public void run() {
+            if (mItemPreparer != null && mItemPreparer.drainTo(mPreparedItems)) {
+                schedulePrepareFrame();
+            }
+        }
+    };
+
+    /**
+     * 虚拟化模式下当前附加在布局上的Item，key为position
+     */
+    private SparseArray<View> mActiveViews = new SparseArray<View>();
+
+    /**
+     * 被回收的Item，TabInterface实现了RecycleTabInterface时使用，可以和其它TabScrollLayout共享
+     */
+    private TabItemPool mItemPool = new TabItemPool();
+
+    /**
+     * TabItemPool是否是通过setItemPool设置的，共享时从界面上移除也会回收Item
+     */
+    private boolean mSharedItemPool;
+
+    /**
+     * 每个Item测量的宽度，虚拟化模式下为-1表示还没有测量
+     */
+    private int[] mItemWidths;
+    private int mItemHeight;
+
+    /**
+     * 上一次测量Item用的MeasureSpec，没有改变并且Item没有请求布局时不需要重新测量
+     */
+    private int mLastItemWidthMeasureSpec = -1;
+    private int mLastItemHeightMeasureSpec = -1;
+
+    private boolean mInLayout;
+
+    /**
+     * 绘制TextTabInterface的文字
+     */
+    private final TextPaint mTextPaint = new TextPaint(Paint.ANTI_ALIAS_FLAG);
+    private ColorStateList mTextColor = ColorStateList.valueOf(Color.DKGRAY);
+    private int mTextPaddingHorizontal;
+    private int mTextPaddingVertical;
+
+    /**
+     * 可见区域内Item的文字排版，key为position，移出可见区域后丢弃
+     */
+    private final SparseArray<Layout> mTextLayouts = new SparseArray<Layout>();
+
+    /**
+     * 根据每个Item的宽度计算Item的位置，在测量后填充
+     */
+    private final TabLayoutEngine mLayoutEngine = new TabLayoutEngine();
+
+    /**
+     * 局部更新了Item，下一次布局后需要修正滚动位置和Tab的位置
+     */
+    private boolean mItemsChanged;
+
+    /**
+     * 等待下一帧滚动过去的Item位置，同一帧内多次选中只滚动到最后一个
+     */
+    private int mPendingScrollPosition = -1;
+
+    /**
+     * 绑定的页面来源的滚动状态，页面滚动时Tab跟着页面移动，不需要单独做动画
+     */
+    private int mPagerScrollState = PagerSource.SCROLL_STATE_IDLE;
+
+    private PagerSource mPagerSource;
+
+    /**
+     * 上一帧读取的页面位置，没有改变时Tab不需要移动
+     */
+    private float mLastPageOffset = Float.NaN;
+
+    private boolean mPagerFrameScheduled;
+
+    private final Runnable mPagerFrame = new Runnable() {
+        @Override
+        public void run() {
+            mPagerFrameScheduled = false;
+            pullPagerState();
+        }
+    };
+
+    private final PagerSource.Callback mPagerCallback = new PagerSource.Callback() {
+        @Override
+        public void onPagerChanged() {
+            if (!mPagerFrameScheduled) {
+                mPagerFrameScheduled = true;
+                ViewCompat.postOnAnimation(TabScrollLayout.this, mPagerFrame);
+            }
+        }
+    };
+
+    /**
+     * 布局中确定选中位置后再通知，回调中可能会修改布局
+     */
+    private final Runnable mNotifySelectionRunnable = new Runnable() {
+        @Override
+        public void run() {
+            final int position = mCurrentPosition;
+
+            if (mSelectListener != null) {
+                mSelectListener.onItemSelect(position, getItemView(position));
+            }
+
+            if (mPagerSource != null && mPagerSource.getCurrentPage() != position) {
+                mPagerSource.setCurrentPage(position, false);
+            }
+        }
+    };
+
+    private final Runnable mScrollToSelectionRunnable = new Runnable() {
+        @Override
+        public void run() {
+            final int position = mPendingScrollPosition;
+            mPendingScrollPosition = -1;
+
+            if (!hasItemGeometry(position)) {
+                return;
+            }
+            moveFull(position);
+            if (mPagerSource == null || mPagerScrollState == PagerSource.SCROLL_STATE_IDLE) {
+                animateIndicatorTo(getItemLeft(position), getItemWidth(position));
+            }
+        }
+    };
+
+    /**
+     * 性能统计，没有开启时为null
+     */
+    private TabScrollMetrics mMetrics;
+    private TabScrollMetrics mGestureMetrics;
+    private boolean mGestureMetricsActive;
+    private boolean mInTouch;
+    private OnMetricsListener mMetricsListener;
+
+    private final TabDataObserver mDataObserver = new TabDataObserver() {
+        @Override
+        public void onChanged() {
+            notifyDataSetChanged();
+        }
+
+        @Override
+        public void onItemChanged(int position) {
+            notifyItemChanged(position);
+        }
+
+        @Override
+        public void onItemInserted(int position) {
+            notifyItemInserted(position);
+        }
+
+        @Override
+        public void onItemRemoved(int position) {
+            notifyItemRemoved(position);
+        }
+
+        @Override
+        public void onItemMoved(int fromPosition, int toPosition) {
+            notifyItemMoved(fromPosition, toPosition);
+        }
+    };
+
+    public TabScrollLayout(Context context, AttributeSet attrs) {
+        super(context, attrs);
+        init(context);
+        initDefaultValue();
+    }
+
+    public TabScrollLayout(Context context) {
+        super(context);
+        init(context);
+        initDefaultValue();
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        isAttachedToWindow = true;
+
+        if (!mScroller.isFinished() || mIndicatorAnimStartTime >= 0) {
+            startAnimationFrames();
+        }
+
+        if (mAsyncItems) {
+            if (mItemPreparer == null) {
+                // 从界面上移除时停止了后台准备
+                restartItemPreparation();
+            }
+            schedulePrepareFrame();
+        }
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+
+        removeCallbacks(mScrollToSelectionRunnable);
+        mPendingScrollPosition = -1;
+
+        removeCallbacks(mAnimationFrame);
+        mAnimationScheduled = false;
+
+        removeCallbacks(mPrepareFrame);
+        mPrepareFrameScheduled = false;
+
+        // 不在界面上时不需要继续准备，也不再让后台线程持有布局
+        if (mItemPreparer != null) {
+            mItemPreparer.cancel();
+            mItemPreparer = null;
+        }
+
+        removeCallbacks(mScrollProgressFrame);
+        mScrollProgressScheduled = false;
+
+        removeCallbacks(mPagerFrame);
+        mPagerFrameScheduled = false;
+
+        resetItemLayers();
+
+        if (mSharedItemPool && isVirtualized() && !isTextItems()) {
+            releaseActiveItems();
+        }
+
+        if (mVelocityTracker != null) {
+            mVelocityTracker.recycle();
+            mVelocityTracker = null;
+        }
+    }
+
+    private void init(Context ctx) {
+        final ViewConfiguration configuration = ViewConfiguration.get(ctx);
+        mTouchSlop = configuration.getScaledTouchSlop();
+        mMinimumVelocity = configuration.getScaledMinimumFlingVelocity();
+        mMaximumVelocity = configuration.getScaledMaximumFlingVelocity();
+
+        mScroller = new OverScroller(ctx, new AccelerateDecelerateInterpolator());
+        setStaticTransformationsEnabled(true);
+    }
+
+    private void initDefaultValue() {
+        mVerticalSpace = dp2px(3);
+        mTabViewSpace = dp2px(2);
+
+        mTextPaint.setTextSize(getResources().getDisplayMetrics().scaledDensity * 14);
+        mTextPaddingHorizontal = dp2px(12);
+        mTextPaddingVertical = dp2px(10);
+    }
+
+    // DataSetObservable
+    private void reLayoutViews() {
+        final long start = beginSection(TabScrollMetrics.SECTION_RELAYOUT_VIEWS);
+
+        removeAllItems();
+        mItemWidths = null;
+        mTextLayouts.clear();
+        mLayoutEngine.reset();
+        mPreparedItems.clear();
+        restartItemPreparation();
+
+        scrollTo(0, 0);
+        mSelectionResolved = false;
+
+        if (mTabInterface != null) {
+            if (!isPositionKeyed()) {
+                final int length = mTabInterface.getCount();
+                // final int padding = DisplayUtils.dip2px(getContext(), 5);
+
+                for (int i = 0; i < length; i++) {
+                    addView(obtainItemView(i));
+                }
+            }
+
+            addTabView();
+
+            changScrollState();
+        }
+
+        mItemIdPositionsValid = false;
+        mSelectedItemId = getStableItemId(mCurrentPosition);
+
+        endSection(TabScrollMetrics.SECTION_RELAYOUT_VIEWS, start);
+    }
+
+    /**
+     * 按当前的TabInterface回收并移除所有的Item，更换TabInterface之前调用，
+     * 旧的TabInterface创建的Item不会交给新的TabInterface复用
+     */
+    private void removeAllItems() {
+        // 下面马上会移除所有的View，在这之前不会有其它地方从TabItemPool中取出Item
+        for (int i = 0, childCount = getChildCount(); i < childCount; i++) {
+            final View child = getChildAt(i);
+            if (child != mTabLayout) {
+                recycleItemView(child);
+            }
+        }
+        mActiveViews.clear();
+        removeAllViews();
+    }
+
+    private LayoutParams generateItemLayoutParams(ViewGroup.LayoutParams p) {
+        LayoutParams params = p instanceof LayoutParams ? (LayoutParams) p
+                : new LayoutParams(LayoutParams.WRAP_CONTENT, LayoutParams.WRAP_CONTENT);
+        params.bottomMargin = mTabViewSpace;
+        params.leftMargin = params.rightMargin = mVerticalSpace;
+        return params;
+    }
+
+    /**
+     * 设置Item的点击和位置，不会修改Item的id，调用之前Item需要已经有generateItemLayoutParams生成的LayoutParams
+     */
+    private void setupItemView(View v, int position) {
+        v.setClickable(true);
+        v.setFocusable(true);
+        v.setOnClickListener(this);
+        setItemPosition(v, position);
+        ((LayoutParams) v.getLayoutParams()).viewType = getItemViewType(position);
+    }
+
+    private int getItemViewType(int position) {
+        return mTabInterface instanceof ViewTypeTabInterface
+                ? ((ViewTypeTabInterface) mTabInterface).getItemViewType(position) : 0;
+    }
+
+    private static void setItemPosition(View v, int position) {
+        ((LayoutParams) v.getLayoutParams()).position = position;
+    }
+
+    private static int getItemPosition(View v) {
+        return ((LayoutParams) v.getLayoutParams()).position;
+    }
+
+    /**
+     * 取得position位置的Item，优先复用TabItemPool中同一种类型的Item
+     */
+    private View obtainItemView(int position) {
+        View scrap = null;
+        if (mTabInterface instanceof RecycleTabInterface) {
+            scrap = mItemPool.getRecycledView(getItemViewType(position));
+        }
+        return bindItemView(position, scrap);
+    }
+
+    /**
+     * 绑定position位置的数据，TabInterface实现了RecycleTabInterface时复用convertView
+     */
+    private View bindItemView(int position, View convertView) {
+        View v = getTabItem(position, convertView);
+
+        v.setLayoutParams(generateItemLayoutParams(v.getLayoutParams()));
+        setupItemView(v, position);
+        v.setSelected(position == mCurrentPosition);
+        return v;
+    }
+
+    /**
+     * 按绑定时的类型回收Item，Item需要已经从布局中移除
+     */
+    private void recycleItemView(View v) {
+        if (mItemLayersActive) {
+            ViewCompat.setLayerType(v, ViewCompat.LAYER_TYPE_NONE, null);
+        }
+
+        if (mTabInterface instanceof RecycleTabInterface) {
+            mItemPool.putRecycledView(((LayoutParams) v.getLayoutParams()).viewType, v);
+        }
+    }
+
+    /**
+     * 虚拟化模式下把所有的Item交回TabItemPool，给其它TabScrollLayout复用，下一次布局时重新补上可见的Item
+     */
+    private void releaseActiveItems() {
+        if (mActiveViews.size() == 0) {
+            return;
+        }
+
+        for (int i = 0; i < mActiveViews.size(); i++) {
+            final View v = mActiveViews.valueAt(i);
+            removeViewInLayout(v);
+            recycleItemView(v);
+        }
+        mActiveViews.clear();
+        requestLayout();
+    }
+
+    private View getTabItem(int position, View convertView) {
+        final long start = beginSection(TabScrollMetrics.SECTION_GET_TAB_ITEM);
+
+        View v;
+        if (mTabInterface instanceof RecycleTabInterface) {
+            v = ((RecycleTabInterface) mTabInterface).getTabItem(position, convertView);
+        } else {
+            v = mTabInterface.getTabItem(position);
+        }
+
+        if (mTabInterface instanceof AsyncTabInterface) {
+            bindPreparedItem(position, v);
+        }
+
+        endSection(TabScrollMetrics.SECTION_GET_TAB_ITEM, start);
+        return v;
+    }
+
+    /**
+     * 把准备好的内容设置给Item，还没有准备好时(没有开启异步模式或者数据改变了)在主线程中准备
+     */
+    private void bindPreparedItem(int position, View v) {
+        final AsyncTabInterface adapter = (AsyncTabInterface) mTabInterface;
+
+        final int index = mPreparedItems.indexOfKey(position);
+        Object prepared;
+        if (index >= 0) {
+            prepared = mPreparedItems.valueAt(index);
+        } else {
+            // 和后台线程的准备互斥，不会同时调用prepareTabItem
+            prepared = TabItemPreparer.prepare(adapter, position);
+        }
+
+        if (mAsyncItems && isVirtualized()) {
+            // 虚拟化模式下Item移出可见区域后还会重新绑定，离开范围后由trimPreparedItems丢弃
+            mPreparedItems.put(position, prepared);
+        } else if (index >= 0) {
+            mPreparedItems.removeAt(index);
+        }
+
+        adapter.bindPreparedTabItem(position, v, prepared);
+    }
+
+    /**
+     * 丢弃first到last范围之外已经测量过的Item的准备结果，再次进入范围时在主线程中重新准备
+     */
+    private void trimPreparedItems(int first, int last) {
+        for (int i = mPreparedItems.size() - 1; i >= 0; i--) {
+            final int position = mPreparedItems.keyAt(i);
+            if ((position < first || position > last) && isItemMeasured(position)) {
+                mPreparedItems.removeAt(i);
+            }
+        }
+    }
+
+    private boolean isItemPrepared(int position) {
+        return !(mTabInterface instanceof AsyncTabInterface) || mPreparedItems.indexOfKey(position) >= 0;
+    }
+
+    /**
+     * 是否通过position管理Item，虚拟化模式和异步模式下Item不是按顺序全部附加在布局上的，
+     * 绘制文字时没有Item的View，只通过position管理宽度
+     */
+    private boolean isPositionKeyed() {
+        return isPositionKeyed(mTabInterface);
+    }
+
+    private boolean isPositionKeyed(TabInterface adapter) {
+        return mVirtualized && adapter instanceof RecycleTabInterface || mAsyncItems
+                || adapter instanceof TextTabInterface;
+    }
+
+    /**
+     * 虚拟化模式需要测量每一个Item的宽度，只有能复用Item时才不会为每个位置创建一个View，
+     * 没有实现RecycleTabInterface时按非虚拟化模式处理
+     */
+    private boolean isVirtualized() {
+        return mVirtualized && mTabInterface instanceof RecycleTabInterface;
+    }
+
+    /**
+     * 是否直接绘制TextTabInterface的文字，这时虚拟化和异步模式都不再需要
+     */
+    private boolean isTextItems() {
+        return mTabInterface instanceof TextTabInterface;
+    }
+
+    /**
+     * 取得position位置上的Item，虚拟化模式下不在可见区域时返回null
+     */
+    private View getItemView(int position) {
+        if (isPositionKeyed()) {
+            return mActiveViews.get(position);
+        }
+
+        if (mTabInterface == null || position < 0 || position >= mTabInterface.getCount()) {
+            return null;
+        }
+        return getChildAt(position);
+    }
+
+    private int getItemLeft(int position) {
+        return mLayoutEngine.getLeft(position);
+    }
+
+    private int getItemWidth(int position) {
+        return mLayoutEngine.getWidth(position);
+    }
+
+    private boolean hasItemGeometry(int position) {
+        if (mTabInterface == null || position < 0 || position >= mTabInterface.getCount()) {
+            return false;
+        }
+        return position < mLayoutEngine.getCount();
+    }
+
+    /**
+     * 取得x坐标(包括滚动的距离)上的Item的位置，x在两个Item之间时返回左边的Item，没有Item时返回-1
+     */
+    public int getPositionAtScrollX(int x) {
+        return mLayoutEngine.findPosition(x);
+    }
+
+    /**
+     * 取得position位置上的Item左边的坐标(包括滚动的距离)，还没有布局时返回-1
+     */
+    public int getItemOffset(int position) {
+        return hasItemGeometry(position) ? getItemLeft(position) : -1;
+    }
+
+    public int dp2px(int dp) {
+        return (int) (getResources().getDisplayMetrics().density * dp);
+    }
+
+    private void addTabView() {
+        if (isIndicatorDrawn()) {
+            return;
+        }
+
+        if (mTabLayout == null) {
+            mTabLayout = new TabLayout(getContext());
+            mTabLayout.setTabView(mTabInterface.getTabView());
+            mTabLayout.setLayoutParams(new LayoutParams(LayoutParams.MATCH_PARENT, LayoutParams.WRAP_CONTENT));
+        }
+
+        addView(mTabLayout);
+    }
+
+    private void measureTab(int maxHeight) {
+        if (mTabLayout != null) {
+            final int widthSpac = MeasureSpec.makeMeasureSpec(mWidth, MeasureSpec.EXACTLY);
+            final int heightSpac = MeasureSpec.makeMeasureSpec(maxHeight, MeasureSpec.AT_MOST);
+            mTabLayout.measure(widthSpac, heightSpac);
+        }
+    }
+
+    @Override
+    protected void dispatchDraw(Canvas canvas) {
+        final long start = beginSection(TabScrollMetrics.SECTION_DRAW);
+
+        if (isIndicatorDrawn()) {
+            if (!mTabLayoutAbove) {
+                drawIndicator(canvas);
+            }
+
+            drawTextItems(canvas);
+            super.dispatchDraw(canvas);
+
+            if (mTabLayoutAbove) {
+                drawIndicator(canvas);
+            }
+        } else if (mTabLayoutAbove) {
+            drawTextItems(canvas);
+            super.dispatchDraw(canvas);
+        } else {
+            if (mTabLayout != null) {
+                drawChild(canvas, mTabLayout, getDrawingTime());
+            }
+
+            drawTextItems(canvas);
+
+            final int childCount = getChildCount();
+            for (int i = 0; i < childCount; i++) {
+                final View child = getChildAt(i);
+                if (child != mTabLayout) {
+                    drawChild(canvas, child, getDrawingTime());
+                }
+            }
+        }
+
+        endSection(TabScrollMetrics.SECTION_DRAW, start);
+    }
+
+    /**
+     * 只绘制可见区域内的文字，并丢弃移出可见区域的排版
+     */
+    private void drawTextItems(Canvas canvas) {
+        final int count = mLayoutEngine.getCount();
+        if (!isTextItems() || count == 0) {
+            return;
+        }
+
+        final int scrollX = getScrollX();
+        final int first = mLayoutEngine.findPosition(scrollX);
+        final int last = mLayoutEngine.findPosition(scrollX + mLayoutWidth);
+        final int height = getHeight();
+        final int defaultColor = mTextColor.getDefaultColor();
+
+        for (int i = first; i <= last; i++) {
+            final Layout layout = getTextLayout(i);
+
+            // 排版持有同一个TextPaint，绘制前改变颜色即可
+            mTextPaint.setColor(mTextColor.getColorForState(i == mCurrentPosition ? SELECTED_STATE_SET
+                    : EMPTY_STATE_SET, defaultColor));
+
+            canvas.save();
+            canvas.translate(mLayoutEngine.getLeft(i) + mTextPaddingHorizontal, (height - layout.getHeight()) / 2);
+            layout.draw(canvas);
+            canvas.restore();
+        }
+
+        for (int i = mTextLayouts.size() - 1; i >= 0; i--) {
+            final int position = mTextLayouts.keyAt(i);
+            if (position < first || position > last) {
+                mTextLayouts.removeAt(i);
+            }
+        }
+    }
+
+    private Layout getTextLayout(int position) {
+        Layout layout = mTextLayouts.get(position);
+        if (layout != null) {
+            return layout;
+        }
+
+        final int width = Math.max(0, mLayoutEngine.getWidth(position) - mTextPaddingHorizontal * 2);
+
+        CharSequence text = getTabText(position);
+        BoringLayout.Metrics boring = BoringLayout.isBoring(text, mTextPaint);
+        if (boring != null && boring.width > width) {
+            // 平分宽度时放不下的文字省略末尾
+            text = TextUtils.ellipsize(text, mTextPaint, width, TextUtils.TruncateAt.END);
+            boring = BoringLayout.isBoring(text, mTextPaint);
+        }
+
+        if (boring != null) {
+            layout = BoringLayout.make(text, mTextPaint, width, Layout.Alignment.ALIGN_CENTER, 1, 0, boring, false);
+        } else {
+            layout = new StaticLayout(text, mTextPaint, width, Layout.Alignment.ALIGN_CENTER, 1, 0, false);
+        }
+
+        mTextLayouts.put(position, layout);
+        return layout;
+    }
+
+    private CharSequence getTabText(int position) {
+        final CharSequence text = ((TextTabInterface) mTabInterface).getTabText(position);
+        return text == null ? "" : text;
+    }
+
+    /**
+     * 刷新position位置的文字，选中状态改变时只刷新改变的Item
+     */
+    private void invalidateTextItem(int position) {
+        if (position >= 0 && position < mLayoutEngine.getCount()) {
+            // 坐标包括滚动的距离，View会自己减去
+            invalidate(mLayoutEngine.getLeft(position), 0, mLayoutEngine.getRight(position), getHeight());
+            recordInvalidate();
+        }
+    }
+
+    private boolean isIndicatorDrawn() {
+        return mIndicatorDrawable != null || mIndicatorRenderer != null;
+    }
+
+    private boolean hasIndicator() {
+        return isIndicatorDrawn() || (mTabLayout != null && mTabLayout.mTabView != null);
+    }
+
+    private int getIndicatorHeight() {
+        if (mIndicatorHeight >= 0) {
+            return mIndicatorHeight;
+        }
+        if (mIndicatorDrawable != null && mIndicatorDrawable.getIntrinsicHeight() > 0) {
+            return mIndicatorDrawable.getIntrinsicHeight();
+        }
+        return dp2px(2);
+    }
+
+    private void drawIndicator(Canvas canvas) {
+        if (mIndicatorWidth <= 0) {
+            return;
+        }
+
+        final float left = mIndicatorLeft;
+        final float right = mIndicatorLeft + mIndicatorWidth;
+        final float top = getIndicatorTop();
+        final float bottom = getIndicatorBottom();
+
+        mDrawnIndicatorLeft = (int) Math.floor(left);
+        mDrawnIndicatorRight = (int) Math.ceil(right);
+
+        if (mIndicatorRenderer != null) {
+            mIndicatorRenderer.draw(canvas, left, top, right, bottom);
+        } else {
+            mIndicatorDrawable.setBounds(Math.round(left), (int) top, Math.round(right), (int) bottom);
+            mIndicatorDrawable.draw(canvas);
+        }
+    }
+
+    private int getIndicatorTop() {
+        return mTabState == TabState.BOTTOM ? getHeight() - getIndicatorHeight() : 0;
+    }
+
+    private int getIndicatorBottom() {
+        return mTabState == TabState.TOP ? getIndicatorHeight() : getHeight();
+    }
+
+    /**
+     * 刷新上一次绘制的Tab和现在的Tab合起来的区域，两边多刷新一个像素避免抗锯齿的残留
+     */
+    private void invalidateIndicator() {
+        final int left = Math.min(mDrawnIndicatorLeft, (int) Math.floor(mIndicatorLeft));
+        final int right = Math.max(mDrawnIndicatorRight, (int) Math.ceil(mIndicatorLeft + mIndicatorWidth));
+
+        // 坐标包括滚动的距离，View会自己减去
+        invalidate(left - 1, getIndicatorTop(), right + 1, getIndicatorBottom());
+        recordInvalidate();
+    }
+
+    /**
+     * 用动画把Tab移动到Item的位置
+     */
+    private void animateIndicatorTo(int itemLeft, int itemWidth) {
+        if (!hasIndicator()) {
+            mIndicatorLeft = itemLeft;
+            mIndicatorWidth = itemWidth;
+            return;
+        }
+
+        mIndicatorFromLeft = mIndicatorLeft;
+        mIndicatorFromWidth = mIndicatorWidth;
+        mIndicatorToLeft = itemLeft;
+        mIndicatorToWidth = itemWidth;
+        mIndicatorAnimStartTime = AnimationUtils.currentAnimationTimeMillis();
+        startAnimationFrames();
+    }
+
+    /**
+     * 不做动画直接把Tab移动到指定的位置，ViewPager滑动的过程中也用来让Tab跟着移动
+     */
+    private void jumpIndicatorTo(float left, float width) {
+        mIndicatorAnimStartTime = -1;
+        mIndicatorLeft = left;
+        mIndicatorWidth = width;
+        applyIndicator();
+
+        if (isIndicatorDrawn()) {
+            invalidateIndicator();
+        }
+    }
+
+    /**
+     * 把Tab当前的位置设置到TabLayout上，绘制的Tab在dispatchDraw中直接使用
+     */
+    private void applyIndicator() {
+        if (!isIndicatorDrawn() && mTabLayout != null) {
+            mTabLayout.setTabBounds(Math.round(mIndicatorLeft), Math.round(mIndicatorWidth));
+        }
+    }
+
+    /**
+     * 用这一帧的时间计算Tab的位置
+     *
+     * @return Tab是否移动了
+     */
+    private boolean computeIndicatorOffset(long frameTime) {
+        if (mIndicatorAnimStartTime < 0) {
+            return false;
+        }
+
+        float t = (float) (frameTime - mIndicatorAnimStartTime) / SELECT_ANIM_DURATION;
+        if (t >= 1) {
+            t = 1;
+            mIndicatorAnimStartTime = -1;
+        }
+
+        mIndicatorLeft = mIndicatorFromLeft + (mIndicatorToLeft - mIndicatorFromLeft) * t;
+        mIndicatorWidth = mIndicatorFromWidth + (mIndicatorToWidth - mIndicatorFromWidth) * t;
+        return true;
+    }
+
+    @Override
+    public void onClick(View v) {
+        performItemSelect(getItemPosition(v), false);
+    }
+
+    /**
+     * 绘制文字时没有Item的View，通过Item的位置表找到点击的Item，
+     * 和View模式一样点击Item之间、第一个Item之前或者最后一个Item之后的空白不选中任何Item
+     */
+    private void performTextItemClick(float x) {
+        final int contentX = (int) x + getScrollX();
+        // findPosition在第一个Item之前和最后一个Item之后会返回第一个和最后一个Item
+        final int position = mLayoutEngine.findPosition(contentX);
+        if (position < 0 || contentX < mLayoutEngine.getLeft(position)
+                || contentX >= mLayoutEngine.getRight(position)) {
+            return;
+        }
+
+        playSoundEffect(SoundEffectConstants.CLICK);
+        performItemSelect(position, false);
+    }
+
+    /**
+     * 选中position位置的Item，虚拟化模式下Item不在可见区域时回调中的itemView为null，绘制文字时总是为null
+     *
+     * @param fromPager 是否是ViewPager的页面改变引起的，这时不需要再设置ViewPager的页面
+     */
+    private void performItemSelect(int position, boolean fromPager) {
+        performItemSelect(position, fromPager, true);
+    }
+
+    /**
+     * @param animate 为false时布局和Tab直接跳到选中的位置，ViewPager也不做动画
+     */
+    private void performItemSelect(int position, boolean fromPager, boolean animate) {
+        final View selected = setCurrentPositionInternal(position);
+
+        if (animate) {
+            scrollToSelection(position);
+        } else {
+            jumpToSelection(position);
+        }
+
+        if (mSelectListener != null) {
+            mSelectListener.onItemSelect(position, selected);
+        }
+
+        if (mPagerSource != null && !fromPager) {
+            mPagerSource.setCurrentPage(position, animate);
+        }
+    }
+
+    /**
+     * 只改变选中的位置和Item的选中状态
+     *
+     * @return 选中的Item，虚拟化模式下不在可见区域时为null
+     */
+    private View setCurrentPositionInternal(int position) {
+        final int oldPosition = mCurrentPosition;
+        mCurrentPosition = position;
+        mSelectedItemId = getStableItemId(position);
+
+        if (isTextItems()) {
+            invalidateTextItem(oldPosition);
+            invalidateTextItem(position);
+            return null;
+        }
+
+        // 只有选中的Item是selected状态，只需要改变之前选中的和现在选中的两个Item
+        if (oldPosition != position) {
+            final View old = getItemView(oldPosition);
+            if (old != null) {
+                old.setSelected(false);
+            }
+        }
+
+        final View selected = getItemView(position);
+        if (selected != null) {
+            selected.setSelected(true);
+        }
+        return selected;
+    }
+
+    /**
+     * 第一次布局或者恢复状态后直接确定滚动位置和Tab的位置，这样第一帧就是正确的
+     */
+    private void resolveSelection() {
+        final int count = mTabInterface == null ? 0 : mTabInterface.getCount();
+        if (count == 0) {
+            return;
+        }
+
+        if (mCurrentPosition >= count) {
+            setCurrentPositionInternal(count - 1);
+        }
+
+        // 异步模式下选中的Item测量之前位置是估计的
+        if (!hasItemGeometry(mCurrentPosition) || (mAsyncItems && !isItemMeasured(mCurrentPosition))) {
+            return;
+        }
+        mSelectionResolved = true;
+
+        if (mSelectionNotifyPending) {
+            mSelectionNotifyPending = false;
+            post(mNotifySelectionRunnable);
+        }
+
+        mScroller.abortAnimation();
+        if (mRestoredScrollX >= 0) {
+            scrollTo(mLayoutEngine.clampScrollX(mRestoredScrollX), 0);
+            mRestoredScrollX = -1;
+        } else {
+            scrollTo(mLayoutEngine.computeRevealScrollX(mCurrentPosition, getScrollX()), 0);
+        }
+
+        jumpIndicatorTo(getItemLeft(mCurrentPosition), getItemWidth(mCurrentPosition));
+    }
+
+    /**
+     * 不做动画直接把布局和Tab移动到position位置
+     */
+    private void jumpToSelection(int position) {
+        // 之前还没执行的动画选中不再需要
+        if (mPendingScrollPosition != -1) {
+            removeCallbacks(mScrollToSelectionRunnable);
+            mPendingScrollPosition = -1;
+        }
+
+        if (!hasItemGeometry(position)) {
+            return;
+        }
+
+        mScroller.abortAnimation();
+        scrollTo(mLayoutEngine.computeRevealScrollX(position, getScrollX()), 0);
+        jumpIndicatorTo(getItemLeft(position), getItemWidth(position));
+    }
+
+    private boolean isViewVisitableFullInScreen(int position) {
+        if (!hasItemGeometry(position)) {
+            return true;
+        }
+
+        final int left = getItemLeft(position);
+        return left >= getScrollX() && left + getItemWidth(position) <= getScrollX() + mLayoutWidth;
+    }
+
+    /**
+     * 请求下一帧推进所有的动画，同一帧内多次调用只会请求一次
+     */
+    private void startAnimationFrames() {
+        if (!mAnimationScheduled) {
+            mAnimationScheduled = true;
+            ViewCompat.postOnAnimation(this, mAnimationFrame);
+        }
+        updateItemLayers();
+    }
+
+    /**
+     * 布局在拖动、惯性滚动或者页面在滚动时给Item开启硬件层，这时Item的内容不变，只需要合成，
+     * 都停下后关闭硬件层，不在静止时占用显存
+     */
+    private void updateItemLayers() {
+        final boolean moving = mIsBeingDragged || !mScroller.isFinished()
+                || (mPagerSource != null && mPagerScrollState != PagerSource.SCROLL_STATE_IDLE);
+
+        if (!mAnimationLayersEnabled || !moving) {
+            resetItemLayers();
+        } else if (!mItemLayersChecked) {
+            // canPromoteItems需要遍历所有的Item，不能每一帧都判断
+            mItemLayersChecked = true;
+            if (canPromoteItems()) {
+                applyItemLayers(true);
+            }
+        }
+    }
+
+    /**
+     * 关闭硬件层，下一次滚动开始时重新判断能不能开启
+     */
+    private void resetItemLayers() {
+        applyItemLayers(false);
+        mItemLayersChecked = false;
+    }
+
+    /**
+     * 只在硬件加速时开启，绘制文字时没有Item，Item的总面积超过可见区域的ANIMATION_LAYER_MAX_SCREENS倍时不开启
+     */
+    private boolean canPromoteItems() {
+        if (Build.VERSION.SDK_INT < 11 || !isHardwareAccelerated() || isTextItems()) {
+            return false;
+        }
+
+        long area = 0;
+        for (int i = 0, childCount = getChildCount(); i < childCount; i++) {
+            final View child = getChildAt(i);
+            if (child != mTabLayout) {
+                area += (long) child.getWidth() * child.getHeight();
+            }
+        }
+        return area > 0 && area <= (long) mLayoutWidth * getHeight() * ANIMATION_LAYER_MAX_SCREENS;
+    }
+
+    private void applyItemLayers(boolean active) {
+        if (mItemLayersActive == active) {
+            return;
+        }
+        mItemLayersActive = active;
+
+        final int layerType = active ? ViewCompat.LAYER_TYPE_HARDWARE : ViewCompat.LAYER_TYPE_NONE;
+        for (int i = 0, childCount = getChildCount(); i < childCount; i++) {
+            final View child = getChildAt(i);
+            if (child != mTabLayout) {
+                ViewCompat.setLayerType(child, layerType, null);
+            }
+        }
+    }
+
+    private boolean needScroll() {
+        return mLayoutEngine.needScroll();
+    }
+
+    /**
+     * 根据滚动的位置更新滚动状态，状态改变时才通知OnScrollListener
+     */
+    private void changScrollState() {
+        if (mScrollListener == null) {
+            return;
+        }
+
+        final int state;
+        if (!needScroll()) {
+            state = SCROLL_EDGE_NO_SCROLL;
+        } else {
+            final int scrollX = getScrollX();
+
+            if (scrollX < 3) {
+                state = SCROLL_EDGE_START;
+            } else if (scrollX + mLayoutWidth >= mWidth - 3) {
+                state = SCROLL_EDGE_END;
+            } else {
+                state = SCROLL_EDGE_MIDDLE;
+            }
+        }
+
+        if (state == mScrollEdgeState) {
+            return;
+        }
+        mScrollEdgeState = state;
+
+        mScrollListener.onScroll(state == SCROLL_EDGE_START, state == SCROLL_EDGE_END, state == SCROLL_EDGE_MIDDLE,
+                state == SCROLL_EDGE_NO_SCROLL);
+    }
+
+    private void scheduleScrollProgress() {
+        if (mScrollProgressListener != null && !mScrollProgressScheduled) {
+            mScrollProgressScheduled = true;
+            ViewCompat.postOnAnimation(this, mScrollProgressFrame);
+        }
+    }
+
+    @Override
+    protected void onScrollChanged(int l, int t, int oldl, int oldt) {
+        super.onScrollChanged(l, t, oldl, oldt);
+        recordInvalidate();
+
+        changScrollState();
+        scheduleScrollProgress();
+
+        if (isPositionKeyed() && !mInLayout) {
+            fillVisibleItems(false);
+        }
+    }
+
+    /**
+     * 虚拟化模式下回收移出可见区域的Item，并补上新进入可见区域的Item，
+     * 异步模式下只补上已经测量过的Item，没有虚拟化时所有的Item都在可见区域内
+     *
+     * @param relayout 是否重新布局已经存在的Item
+     */
+    private void fillVisibleItems(boolean relayout) {
+        final int count = mLayoutEngine.getCount();
+        if (count == 0 || isTextItems()) {
+            // 文字在dispatchDraw中按可见区域绘制，滚动时已经刷新
+            return;
+        }
+
+        final int first;
+        final int last;
+        if (isVirtualized()) {
+            final int scrollX = getScrollX();
+            first = Math.max(0, mLayoutEngine.findPosition(scrollX) - mOffscreenTabLimit);
+            last = Math.min(count - 1, mLayoutEngine.findPosition(scrollX + mLayoutWidth) + mOffscreenTabLimit);
+        } else {
+            first = 0;
+            last = count - 1;
+        }
+
+        for (int i = mActiveViews.size() - 1; i >= 0; i--) {
+            final int position = mActiveViews.keyAt(i);
+            if (position < first || position > last) {
+                final View v = mActiveViews.valueAt(i);
+                mActiveViews.removeAt(i);
+                removeViewInLayout(v);
+                recycleItemView(v);
+            }
+        }
+
+        if (mAsyncItems && isVirtualized()) {
+            trimPreparedItems(first, last);
+        }
+
+        for (int position = first; position <= last; position++) {
+            View v = mActiveViews.get(position);
+
+            if (v == null) {
+                if (mAsyncItems && !isItemMeasured(position)) {
+                    continue;
+                }
+                v = obtainItemView(position);
+                if (mItemLayersActive) {
+                    // 滚动中新出现的Item也开启硬件层
+                    ViewCompat.setLayerType(v, ViewCompat.LAYER_TYPE_HARDWARE, null);
+                }
+                addViewInLayout(v, mTabLayout != null ? indexOfChild(mTabLayout) : -1, v.getLayoutParams(), true);
+                mActiveViews.put(position, v);
+            } else if (!relayout) {
+                continue;
+            }
+
+            final int width = mLayoutEngine.getWidth(position);
+            final int height = getMeasuredHeight();
+            v.measure(MeasureSpec.makeMeasureSpec(width, MeasureSpec.EXACTLY),
+                    MeasureSpec.makeMeasureSpec(height, MeasureSpec.EXACTLY));
+            v.layout(mLayoutEngine.getLeft(position), 0, mLayoutEngine.getRight(position), height);
+        }
+
+        invalidate();
+    }
+
+    @Override
+    protected void onLayout(boolean changed, int l, int t, int r, int b) {
+        final long start = beginSection(TabScrollMetrics.SECTION_LAYOUT);
+
+        if (!mSelectionResolved) {
+            // 在摆放Item之前滚动，虚拟化模式下直接补上滚动后可见的Item
+            mInLayout = true;
+            resolveSelection();
+            mInLayout = false;
+        }
+
+        if (isPositionKeyed()) {
+            mInLayout = true;
+            fillVisibleItems(true);
+            mInLayout = false;
+        } else {
+            final int count = mLayoutEngine.getCount();
+            final int height = getMeasuredHeight();
+
+            // 测量中已经算好了每个Item的位置，不修改LayoutParams，避免再次请求布局
+            for (int i = 0; i < count; i++) {
+                getChildAt(i).layout(mLayoutEngine.getLeft(i), 0, mLayoutEngine.getRight(i), height);
+            }
+        }
+
+        if (mTabLayout != null) {
+            if (mTabState == TabState.TOP) {
+                mTabLayout.layout(0, 0, mWidth, mTabLayout.getMeasuredHeight());
+            } else {
+                mTabLayout.layout(0, getHeight() - mTabLayout.getMeasuredHeight(), mWidth, getHeight());
+            }
+        }
+
+        if (mItemsChanged) {
+            mItemsChanged = false;
+
+            if (getScrollX() > mLayoutEngine.getMaxScrollX()) {
+                scrollTo(mLayoutEngine.getMaxScrollX(), 0);
+            }
+
+            if (hasItemGeometry(mCurrentPosition)) {
+                jumpIndicatorTo(getItemLeft(mCurrentPosition), getItemWidth(mCurrentPosition));
+            }
+
+            changScrollState();
+        }
+
+        endSection(TabScrollMetrics.SECTION_LAYOUT, start);
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        final long start = beginSection(TabScrollMetrics.SECTION_MEASURE);
+
+        mLayoutEngine.setSpacing(mVerticalSpace);
+        mLayoutEngine.setAverage(mTabWidthAverage);
+
+        final int height;
+        if (isTextItems()) {
+            height = measureTextItems(widthMeasureSpec, heightMeasureSpec);
+        } else if (isPositionKeyed()) {
+            height = measureVirtualItems(widthMeasureSpec, heightMeasureSpec);
+        } else {
+            height = measureItems(widthMeasureSpec, heightMeasureSpec);
+        }
+        final int width = mLayoutEngine.getTotalWidth();
+
+        mWidth = width;
+        mLayoutWidth = MeasureSpec.getSize(widthMeasureSpec);
+
+        measureTab(height);
+
+        setMeasuredDimension(getDefaultSize(width, widthMeasureSpec), height);
+
+        endSection(TabScrollMetrics.SECTION_MEASURE, start);
+    }
+
+    @Override
+    public void invalidate() {
+        super.invalidate();
+        recordInvalidate();
+    }
+
+    @Override
+    public void postInvalidate() {
+        super.postInvalidate();
+        recordInvalidate();
+    }
+
+    /**
+     * 开始统计一个阶段，没有开启性能统计时什么都不做
+     *
+     * @return 开始的时间，没有开启时返回-1
+     */
+    private long beginSection(int section) {
+        if (mMetrics == null) {
+            return -1;
+        }
+
+        if (Build.VERSION.SDK_INT >= 18) {
+            Trace.beginSection(TabScrollMetrics.SECTION_NAMES[section]);
+        }
+        return System.nanoTime();
+    }
+
+    private void endSection(int section, long start) {
+        if (start < 0) {
+            return;
+        }
+
+        if (Build.VERSION.SDK_INT >= 18) {
+            Trace.endSection();
+        }
+
+        if (mMetrics != null) {
+            final long nanos = System.nanoTime() - start;
+            mMetrics.record(section, nanos);
+            if (mGestureMetricsActive) {
+                mGestureMetrics.record(section, nanos);
+            }
+        }
+    }
+
+    private void recordInvalidate() {
+        if (mMetrics == null) {
+            return;
+        }
+
+        mMetrics.recordInvalidate();
+        if (mGestureMetricsActive) {
+            mGestureMetrics.recordInvalidate();
+        }
+    }
+
+    private void startGestureMetrics() {
+        if (mMetrics == null) {
+            return;
+        }
+
+        mGestureMetrics.reset();
+        mGestureMetricsActive = true;
+    }
+
+    /**
+     * 手指抬起并且动画都结束后回调这次手势的统计
+     */
+    private void finishGestureMetrics() {
+        if (!mGestureMetricsActive || mInTouch) {
+            return;
+        }
+
+        mGestureMetricsActive = false;
+        if (mMetricsListener != null) {
+            mMetricsListener.onGestureMetrics(mGestureMetrics.copy());
+        }
+    }
+
+    /**
+     * 虚拟化模式下只测量还没有宽度的Item，测量用的Item测量后马上回收，
+     * 异步模式下只测量已经附加的Item，其它的Item在之后的帧中测量
+     *
+     * @return Item中最大的高度
+     */
+    private int measureVirtualItems(int widthMeasureSpec, int heightMeasureSpec) {
+        final int count = mTabInterface == null ? 0 : mTabInterface.getCount();
+        final int parentWidth = MeasureSpec.getSize(widthMeasureSpec);
+
+        final boolean average = mLayoutEngine.isAverage(count);
+        final int itemWidthMeasureSpec = average
+                ? MeasureSpec.makeMeasureSpec(mLayoutEngine.getAverageItemWidth(parentWidth, count), MeasureSpec.EXACTLY)
+                : MeasureSpec.makeMeasureSpec(parentWidth, MeasureSpec.UNSPECIFIED);
+
+        if (mItemWidths == null || mItemWidths.length != count || mLastItemWidthMeasureSpec != itemWidthMeasureSpec
+                || mLastItemHeightMeasureSpec != heightMeasureSpec) {
+            mItemWidths = new int[count];
+            Arrays.fill(mItemWidths, -1);
+            mItemHeight = 0;
+            mLastItemWidthMeasureSpec = itemWidthMeasureSpec;
+            mLastItemHeightMeasureSpec = heightMeasureSpec;
+        }
+
+        if (count == 0) {
+            mLayoutEngine.layout(mItemWidths, 0, parentWidth);
+            return 0;
+        }
+
+        // 内容改变后请求了布局的Item需要重新测量
+        for (int i = 0; i < mActiveViews.size(); i++) {
+            if (mActiveViews.valueAt(i).isLayoutRequested()) {
+                mItemWidths[mActiveViews.keyAt(i)] = -1;
+            }
+        }
+
+        for (int i = 0; i < count; i++) {
+            if (mItemWidths[i] >= 0) {
+                continue;
+            }
+
+            View child = mActiveViews.get(i);
+            final boolean isScrap = child == null;
+            if (isScrap) {
+                if (mAsyncItems) {
+                    continue;
+                }
+                child = obtainItemView(i);
+            }
+
+            measureItemView(child);
+            mItemWidths[i] = child.getMeasuredWidth();
+            mItemHeight = Math.max(child.getMeasuredHeight(), mItemHeight);
+
+            if (isScrap) {
+                recycleItemView(child);
+            }
+        }
+
+        if (mAsyncItems) {
+            layoutEstimatedItems(count, parentWidth);
+        } else {
+            mLayoutEngine.layout(mItemWidths, count, parentWidth);
+        }
+
+        return mItemHeight;
+    }
+
+    /**
+     * 只测量还没有宽度的文字，宽度按position缓存，数据或者文字的样式改变后才重新测量
+     *
+     * @return 一行文字加上上下的padding的高度
+     */
+    private int measureTextItems(int widthMeasureSpec, int heightMeasureSpec) {
+        final int count = mTabInterface == null ? 0 : mTabInterface.getCount();
+        final int parentWidth = MeasureSpec.getSize(widthMeasureSpec);
+
+        final boolean average = mLayoutEngine.isAverage(count);
+        final int averageWidth = mLayoutEngine.getAverageItemWidth(parentWidth, count);
+        final int itemWidthMeasureSpec = average ? MeasureSpec.makeMeasureSpec(averageWidth, MeasureSpec.EXACTLY)
+                : MeasureSpec.makeMeasureSpec(0, MeasureSpec.UNSPECIFIED);
+
+        if (mItemWidths == null || mItemWidths.length != count || mLastItemWidthMeasureSpec != itemWidthMeasureSpec) {
+            mItemWidths = new int[count];
+            Arrays.fill(mItemWidths, -1);
+            mTextLayouts.clear();
+            mLastItemWidthMeasureSpec = itemWidthMeasureSpec;
+        }
+
+        for (int i = 0; i < count; i++) {
+            if (mItemWidths[i] < 0) {
+                mItemWidths[i] = average ? averageWidth
+                        : (int) Math.ceil(Layout.getDesiredWidth(getTabText(i), mTextPaint)) + mTextPaddingHorizontal * 2;
+            }
+        }
+
+        mLayoutEngine.layout(mItemWidths, count, parentWidth);
+
+        final Paint.FontMetricsInt fm = mTextPaint.getFontMetricsInt();
+        return resolveSize(fm.descent - fm.ascent + mTextPaddingVertical * 2, heightMeasureSpec);
+    }
+
+    private void measureItemView(View child) {
+        if (MeasureSpec.getMode(mLastItemWidthMeasureSpec) == MeasureSpec.EXACTLY) {
+            child.measure(mLastItemWidthMeasureSpec, mLastItemHeightMeasureSpec);
+        } else {
+            measureChild(child, mLastItemWidthMeasureSpec, mLastItemHeightMeasureSpec);
+        }
+    }
+
+    private boolean isItemMeasured(int position) {
+        return mItemWidths != null && position < mItemWidths.length && mItemWidths[position] >= 0;
+    }
+
+    /**
+     * 异步模式下还没有测量的Item使用已经测量的Item的平均宽度布局，
+     * 并且保持可见区域左边的Item不动，避免后面测量的Item改变宽度时内容跳动
+     */
+    private void layoutEstimatedItems(int count, int parentWidth) {
+        if (mEstimatedWidths == null || mEstimatedWidths.length != count) {
+            mEstimatedWidths = new int[count];
+        }
+
+        int measuredCount = 0;
+        long measuredWidth = 0;
+        for (int i = 0; i < count; i++) {
+            if (mItemWidths[i] >= 0) {
+                measuredCount++;
+                measuredWidth += mItemWidths[i];
+            }
+        }
+
+        final int estimate = measuredCount == 0 ? 0 : (int) (measuredWidth / measuredCount);
+        for (int i = 0; i < count; i++) {
+            mEstimatedWidths[i] = mItemWidths[i] >= 0 ? mItemWidths[i] : estimate;
+        }
+
+        final int scrollX = getScrollX();
+        final int anchor = mLayoutEngine.getCount() == count ? mLayoutEngine.findPosition(scrollX) : -1;
+        final int anchorLeft = anchor >= 0 ? mLayoutEngine.getLeft(anchor) : 0;
+
+        mLayoutEngine.layout(mEstimatedWidths, count, parentWidth);
+
+        if (measuredCount < count) {
+            schedulePrepareFrame();
+        }
+
+        if (anchor >= 0 && scrollX > 0) {
+            final int newScrollX = mLayoutEngine.clampScrollX(scrollX + mLayoutEngine.getLeft(anchor) - anchorLeft);
+            if (newScrollX != scrollX) {
+                // 之后的布局会重新摆放所有的Item，这里不需要补上可见区域的Item
+                mInLayout = true;
+                scrollTo(newScrollX, 0);
+                mInLayout = false;
+            }
+        }
+    }
+
+    private void schedulePrepareFrame() {
+        if (!mPrepareFrameScheduled) {
+            mPrepareFrameScheduled = true;
+            ViewCompat.postOnAnimation(this, mPrepareFrame);
+        }
+    }
+
+    /**
+     * 异步模式下在一帧的时间预算内创建并测量已经准备好的Item，从可见区域的中间开始向两边进行，
+     * 非虚拟化模式下测量后直接附加在布局上
+     */
+    private void prepareItemsInFrame() {
+        final int count = mItemWidths == null ? 0 : mItemWidths.length;
+        if (!mAsyncItems || isTextItems() || mTabInterface == null || count == 0 || count != mTabInterface.getCount()
+                || mLastItemWidthMeasureSpec == -1) {
+            return;
+        }
+
+        final long deadline = System.nanoTime() + PREPARE_FRAME_BUDGET_NANOS;
+
+        // 选中的Item测量之前其它Item的位置都是估计的，先从选中的Item开始
+        int anchor = mCurrentPosition;
+        if (isItemMeasured(mCurrentPosition) && mLayoutEngine.getCount() == count) {
+            anchor = mLayoutEngine.findPosition(getScrollX() + mLayoutWidth / 2);
+        }
+        anchor = Math.max(0, Math.min(anchor, count - 1));
+
+        boolean measured = false;
+        boolean outOfTime = false;
+
+        for (int i = 0; i < count * 2; i++) {
+            final int position = TabItemPreparer.getOutwardPosition(anchor, i);
+            if (position < 0 || position >= count || mItemWidths[position] >= 0 || !isItemPrepared(position)) {
+                continue;
+            }
+
+            if (measured && System.nanoTime() >= deadline) {
+                outOfTime = true;
+                break;
+            }
+
+            final View v = obtainItemView(position);
+            measureItemView(v);
+            mItemWidths[position] = v.getMeasuredWidth();
+            mItemHeight = Math.max(v.getMeasuredHeight(), mItemHeight);
+            measured = true;
+
+            if (isVirtualized()) {
+                recycleItemView(v);
+            } else {
+                addViewInLayout(v, mTabLayout != null ? indexOfChild(mTabLayout) : -1, v.getLayoutParams(), true);
+                mActiveViews.put(position, v);
+            }
+        }
+
+        if (measured) {
+            mItemsChanged = true;
+            requestLayout();
+            invalidate();
+        }
+
+        if (outOfTime) {
+            schedulePrepareFrame();
+        }
+    }
+
+    /**
+     * 异步模式下重新开始在后台准备还没有测量的Item
+     */
+    private void restartItemPreparation() {
+        if (mItemPreparer != null) {
+            mItemPreparer.cancel();
+            mItemPreparer = null;
+        }
+
+        if (!mAsyncItems || isTextItems() || !(mTabInterface instanceof AsyncTabInterface)) {
+            return;
+        }
+
+        final int count = mTabInterface.getCount();
+        if (count > 0) {
+            mItemPreparer = new TabItemPreparer((AsyncTabInterface) mTabInterface, count, mCurrentPosition,
+                    mItemWidths, mDeliverPreparedItems);
+            mItemPreparer.start();
+        }
+    }
+
+    /**
+     * 非虚拟化模式下判断测量Item用的MeasureSpec是否改变，改变了所有的Item都需要重新测量
+     */
+    private boolean isItemMeasureSpecChanged(int widthMeasureSpec, int heightMeasureSpec) {
+        final boolean changed = widthMeasureSpec != mLastItemWidthMeasureSpec
+                || heightMeasureSpec != mLastItemHeightMeasureSpec;
+        mLastItemWidthMeasureSpec = widthMeasureSpec;
+        mLastItemHeightMeasureSpec = heightMeasureSpec;
+        return changed;
+    }
+
+    /**
+     * 非虚拟化模式下测量所有的Item，MeasureSpec没有改变并且Item没有请求布局时不重新测量
+     *
+     * @return Item中最大的高度
+     */
+    private int measureItems(int widthMeasureSpec, int heightMeasureSpec) {
+        final int count = mTabInterface == null ? 0 : mTabInterface.getCount();
+        final int parentWidth = MeasureSpec.getSize(widthMeasureSpec);
+
+        final boolean average = mLayoutEngine.isAverage(count);
+        final int itemWidthMeasureSpec = average
+                ? MeasureSpec.makeMeasureSpec(mLayoutEngine.getAverageItemWidth(parentWidth, count), MeasureSpec.EXACTLY)
+                : MeasureSpec.makeMeasureSpec(parentWidth, MeasureSpec.UNSPECIFIED);
+        final boolean specChanged = isItemMeasureSpecChanged(itemWidthMeasureSpec, heightMeasureSpec);
+
+        if (mItemWidths == null || mItemWidths.length != count) {
+            mItemWidths = new int[count];
+        }
+
+        int height = 0;
+        for (int i = 0; i < count; i++) {
+            final View child = getChildAt(i);
+
+            if (specChanged || child.isLayoutRequested()) {
+                if (average) {
+                    child.measure(itemWidthMeasureSpec, heightMeasureSpec);
+                } else {
+                    measureChild(child, itemWidthMeasureSpec, heightMeasureSpec);
+                }
+            }
+            mItemWidths[i] = child.getMeasuredWidth();
+            height = Math.max(child.getMeasuredHeight(), height);
+        }
+
+        mLayoutEngine.layout(mItemWidths, count, parentWidth);
+
+        return height;
+    }
+
+    @Override
+    protected boolean checkLayoutParams(ViewGroup.LayoutParams p) {
+        return p instanceof LayoutParams;
+    }
+
+    @Override
+    public LayoutParams generateLayoutParams(AttributeSet attrs) {
+        return new LayoutParams(getContext(), attrs);
+    }
+
+    @Override
+    protected LayoutParams generateDefaultLayoutParams() {
+        return new LayoutParams(LayoutParams.WRAP_CONTENT, LayoutParams.WRAP_CONTENT);
+    }
+
+    @Override
+    protected LayoutParams generateLayoutParams(ViewGroup.LayoutParams p) {
+        return new LayoutParams(p);
+    }
+
+    public static class LayoutParams extends MarginLayoutParams {
+
+        /**
+         * Item在TabInterface中的位置，不使用View的id保存，不会覆盖应用设置的id
+         */
+        int position = -1;
+
+        /**
+         * 绑定时Item的类型，回收时放回对应类型的TabItemPool
+         */
+        int viewType;
+
+        public LayoutParams(int arg0, int arg1) {
+            super(arg0, arg1);
+        }
+
+        public LayoutParams(ViewGroup.LayoutParams arg0) {
+            super(arg0);
+        }
+
+        public LayoutParams(MarginLayoutParams arg0) {
+            super(arg0);
+        }
+
+        public LayoutParams(Context arg0, AttributeSet arg1) {
+            super(arg0, arg1);
+        }
+    }
+
+    /**
+     * 有阻力的ScrollBy();
+     */
+    private void resistanceScrollBy(float overScroll, float scrollby) {
+        scrollBy((int) (scrollby * (mLayoutWidth - Math.abs(overScroll)) / mLayoutWidth * 0.5), 0);
+    }
+
+    @Override
+    public boolean dispatchTouchEvent(MotionEvent ev) {
+        final int action = ev.getActionMasked();
+
+        if (action == MotionEvent.ACTION_DOWN) {
+            mInTouch = true;
+            startGestureMetrics();
+            // 上一次手势可能被父布局拦截了，没有收到UP
+            endDrag();
+        }
+
+        final boolean handled = super.dispatchTouchEvent(ev);
+
+        if (action == MotionEvent.ACTION_UP || action == MotionEvent.ACTION_CANCEL) {
+            mInTouch = false;
+            if (!mAnimationScheduled) {
+                finishGestureMetrics();
+            }
+        }
+
+        return handled;
+    }
+
+    /**
+     * 水平移动超过touch slop后拦截事件，Item会收到ACTION_CANCEL，点击Item时事件直接交给Item处理
+     */
+    @Override
+    public boolean onInterceptTouchEvent(MotionEvent ev) {
+        final int action = ev.getActionMasked();
+
+        if (action == MotionEvent.ACTION_MOVE && mIsBeingDragged) {
+            return true;
+        }
+
+        switch (action) {
+            case MotionEvent.ACTION_DOWN:
+                onTouchDown(ev);
+                break;
+
+            case MotionEvent.ACTION_MOVE:
+                checkStartDrag(ev);
+                break;
+
+            case MotionEvent.ACTION_POINTER_UP:
+                onSecondaryPointerUp(ev);
+                break;
+
+            case MotionEvent.ACTION_UP:
+            case MotionEvent.ACTION_CANCEL:
+                endDrag();
+                break;
+        }
+
+        getVelocityTracker().addMovement(ev);
+        return mIsBeingDragged;
+    }
+
+    @Override
+    public boolean onTouchEvent(MotionEvent ev) {
+        getVelocityTracker().addMovement(ev);
+
+        switch (ev.getActionMasked()) {
+            case MotionEvent.ACTION_DOWN:
+                // onInterceptTouchEvent已经处理过的按下不再处理
+                if (mActivePointerId == INVALID_POINTER) {
+                    onTouchDown(ev);
+                }
+                break;
+
+            case MotionEvent.ACTION_MOVE: {
+                if (!mIsBeingDragged) {
+                    checkStartDrag(ev);
+                }
+
+                if (mIsBeingDragged) {
+                    final int pointerIndex = ev.findPointerIndex(mActivePointerId);
+                    if (pointerIndex < 0) {
+                        break;
+                    }
+
+                    final float x = ev.getX(pointerIndex);
+                    performDrag(mLastMotionX - x);
+                    mLastMotionX = x;
+                }
+                break;
+            }
+
+            case MotionEvent.ACTION_POINTER_DOWN: {
+                final int index = ev.getActionIndex();
+                mLastMotionX = ev.getX(index);
+                mActivePointerId = ev.getPointerId(index);
+                break;
+            }
+
+            case MotionEvent.ACTION_POINTER_UP:
+                onSecondaryPointerUp(ev);
+                break;
+
+            case MotionEvent.ACTION_UP:
+                if (!mIsBeingDragged && isTextItems() && mActivePointerId != INVALID_POINTER) {
+                    performTextItemClick(ev.getX());
+                }
+
+                if (mIsBeingDragged) {
+                    mVelocityTracker.computeCurrentVelocity(1000, mMaximumVelocity);
+                    final int velocityX = (int) VelocityTrackerCompat.getXVelocity(mVelocityTracker, mActivePointerId);
+
+                    final int scrollX = getScrollX();
+                    final boolean inBounds = scrollX >= 0 && scrollX <= mLayoutEngine.getMaxScrollX();
+                    if (inBounds && Math.abs(velocityX) > mMinimumVelocity) {
+                        fling(velocityX);
+                    } else if (inBounds && mSnapMode != TabLayoutEngine.SnapMode.NONE) {
+                        snapTo(mLayoutEngine.computeSnapScrollX(scrollX, mSnapMode));
+                    } else {
+                        onUp();
+                    }
+                }
+                endDrag();
+                break;
+
+            case MotionEvent.ACTION_CANCEL:
+                if (mIsBeingDragged) {
+                    onUp();
+                }
+                endDrag();
+                break;
+        }
+        return true;
+    }
+
+    private VelocityTracker getVelocityTracker() {
+        if (mVelocityTracker == null) {
+            mVelocityTracker = VelocityTracker.obtain();
+        }
+        return mVelocityTracker;
+    }
+
+    private void onTouchDown(MotionEvent ev) {
+        mInitialMotionX = mLastMotionX = ev.getX();
+        mInitialMotionY = ev.getY();
+        mActivePointerId = ev.getPointerId(0);
+        getVelocityTracker().clear();
+
+        // 惯性滚动中按下时停住并直接开始拖动，不把点击交给Item
+        mIsBeingDragged = !mScroller.isFinished();
+        if (mIsBeingDragged) {
+            mScroller.abortAnimation();
+            requestParentDisallowInterceptTouchEvent();
+        }
+    }
+
+    /**
+     * 水平移动的距离超过touch slop并且大于竖直移动的距离时开始拖动
+     */
+    private void checkStartDrag(MotionEvent ev) {
+        final int pointerIndex = ev.findPointerIndex(mActivePointerId);
+        if (pointerIndex < 0) {
+            return;
+        }
+
+        final float x = ev.getX(pointerIndex);
+        final float dx = x - mInitialMotionX;
+        final float dy = ev.getY(pointerIndex) - mInitialMotionY;
+
+        if (Math.abs(dx) > mTouchSlop && Math.abs(dx) > Math.abs(dy)) {
+            mIsBeingDragged = true;
+            mLastMotionX = dx > 0 ? mInitialMotionX + mTouchSlop : mInitialMotionX - mTouchSlop;
+            requestParentDisallowInterceptTouchEvent();
+            updateItemLayers();
+        }
+    }
+
+    private void onSecondaryPointerUp(MotionEvent ev) {
+        final int pointerIndex = ev.getActionIndex();
+        if (ev.getPointerId(pointerIndex) == mActivePointerId) {
+            final int newPointerIndex = pointerIndex == 0 ? 1 : 0;
+            mLastMotionX = ev.getX(newPointerIndex);
+            mActivePointerId = ev.getPointerId(newPointerIndex);
+            getVelocityTracker().clear();
+        }
+    }
+
+    private void endDrag() {
+        mIsBeingDragged = false;
+        mActivePointerId = INVALID_POINTER;
+        // 松手后开始的惯性滚动会保持硬件层
+        updateItemLayers();
+    }
+
+    private void requestParentDisallowInterceptTouchEvent() {
+        final ViewParent parent = getParent();
+        if (parent != null) {
+            parent.requestDisallowInterceptTouchEvent(true);
+        }
+    }
+
+    /**
+     * 拖动布局，超出边界时有阻力
+     */
+    private void performDrag(float distanceX) {
+        final int scrollX = getScrollX();
+        // 滚动状态在onScrollChanged中更新
+        if (scrollX <= 0 && distanceX <= 0) {
+            if (mOverMoveSupport) {
+                resistanceScrollBy(scrollX, distanceX);
+            }
+        } else if (scrollX + mLayoutWidth >= mWidth && distanceX >= 0) {
+            if (mOverMoveSupport) {
+                resistanceScrollBy(scrollX + mLayoutWidth - mWidth, distanceX);
+            }
+        } else {
+            scrollBy((int) distanceX, 0);
+        }
+    }
+
+    public void onUp() {
+
+        final int scrollX = getScrollX();
+
+        if (!needScroll()) {
+            mScroller.startScroll(scrollX, 0, -scrollX, 0);
+            startAnimationFrames();
+            return;
+        }
+
+        if (scrollX < 0) {
+            mScroller.startScroll(scrollX, 0, -scrollX, 0);
+            startAnimationFrames();
+        } else {
+            final int s = scrollX + mLayoutWidth - mWidth;
+
+            if (s > 0) {
+                mScroller.startScroll(scrollX, 0, -s, 0);
+                startAnimationFrames();
+            }
+        }
+
+        changScrollState();
+    }
+
+    private void fling(int velocityX) {
+        if (!needScroll()) {
+            onUp();
+            return;
+        }
+
+        final int scrollX = getScrollX();
+        final int maxScrollX = mLayoutEngine.getMaxScrollX();
+
+        if (mSnapMode == TabLayoutEngine.SnapMode.NONE) {
+            mScroller.fling(scrollX, 0, -velocityX, 0, 0, maxScrollX, 0, 0, mOverMoveSupport ? mLayoutWidth / 3 : 0, 0);
+            startAnimationFrames();
+            return;
+        }
+
+        // 先算出自然停下的位置，对齐到Item后用能刚好停在那里的速度滚动，只需要一次动画
+        mScroller.fling(scrollX, 0, -velocityX, 0, Integer.MIN_VALUE, Integer.MAX_VALUE, 0, 0);
+        final int targetX = mLayoutEngine.computeSnapScrollX(mScroller.getFinalX(), mSnapMode);
+        mScroller.abortAnimation();
+
+        final int distance = Math.abs(targetX - scrollX);
+        if (distance == 0) {
+            changScrollState();
+            return;
+        }
+
+        final int direction = targetX > scrollX ? 1 : -1;
+
+        // 停下的距离随速度单调增加，二分查找刚好滚动distance的速度
+        int low = 0;
+        int high = Math.max(mMaximumVelocity, Math.abs(velocityX)) * 2;
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            mScroller.fling(scrollX, 0, direction * mid, 0, Integer.MIN_VALUE, Integer.MAX_VALUE, 0, 0);
+            if (Math.abs(mScroller.getFinalX() - scrollX) < distance) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+
+        // 找到的速度会稍微滚过targetX，以targetX为边界时OverScroller缩短时间刚好停在边界上
+        mScroller.fling(scrollX, 0, direction * low, 0, Math.min(scrollX, targetX), Math.max(scrollX, targetX), 0, 0);
+        if (mScroller.getFinalX() != targetX) {
+            // 距离太远，最大的速度也滚不到时直接滚动过去
+            mScroller.abortAnimation();
+            mScroller.startScroll(scrollX, 0, targetX - scrollX, 0);
+        }
+        startAnimationFrames();
+    }
+
+    /**
+     * 慢慢松手时直接滚动到对齐的位置
+     */
+    private void snapTo(int targetX) {
+        final int scrollX = getScrollX();
+        if (targetX == scrollX) {
+            changScrollState();
+            return;
+        }
+
+        mScroller.startScroll(scrollX, 0, targetX - scrollX, 0, SELECT_ANIM_DURATION);
+        startAnimationFrames();
+    }
+
+    /**
+     * 在下一帧开始时移动布局和Tab到position位置，还没执行时再次调用只更新目标位置
+     */
+    private void scrollToSelection(int position) {
+        final boolean scheduled = mPendingScrollPosition != -1;
+        mPendingScrollPosition = position;
+
+        if (!scheduled) {
+            ViewCompat.postOnAnimation(this, mScrollToSelectionRunnable);
+        }
+    }
+
+    /**
+     * @Description: 移动布局将上一个或者下一个控件的部分显示出来
+     * @author lWX216769
+     * @date 2014-7-1
+     */
+    private void moveFull(int position) {
+        if (!needScroll()) {
+            changScrollState();
+            return;
+        }
+
+        final int scrollX = getScrollX();
+        final int targetX = mLayoutEngine.computeRevealScrollX(position, scrollX);
+
+        if (targetX != scrollX) {
+            mScroller.startScroll(scrollX, 0, targetX - scrollX, 0, SELECT_ANIM_DURATION);
+            startAnimationFrames();
+        }
+    }
+
+    public int getCurrentItem() {
+        if (mTabInterface == null || mTabInterface.getCount() == 0) {
+            return -1;
+        }
+        return mCurrentPosition;
+    }
+
+    /**
+     * 设置Tab的层级，是在Item之上还是Item之下
+     */
+    public void setTabZIndexAbove(boolean isAbove) {
+        mTabLayoutAbove = isAbove;
+        invalidate();
+    }
+
+    /**
+     * 设置绘制Tab用的Drawable，设置后不再使用TabInterface.getTabView()，为null时恢复使用View
+     */
+    public void setIndicatorDrawable(Drawable drawable) {
+        mIndicatorDrawable = drawable;
+        onIndicatorModeChanged();
+    }
+
+    /**
+     * 设置自己绘制Tab的回调，优先于setIndicatorDrawable，为null时恢复使用Drawable或View
+     */
+    public void setIndicatorRenderer(IndicatorRenderer renderer) {
+        mIndicatorRenderer = renderer;
+        onIndicatorModeChanged();
+    }
+
+    /**
+     * 设置绘制的Tab的高度，TabState为FILL时无效
+     */
+    public void setIndicatorHeight(int height) {
+        mIndicatorHeight = height;
+        invalidate();
+    }
+
+    private void onIndicatorModeChanged() {
+        if (isIndicatorDrawn()) {
+            if (mTabLayout != null) {
+                removeView(mTabLayout);
+                mTabLayout = null;
+            }
+        } else if (mTabLayout == null && mTabInterface != null) {
+            addTabView();
+        }
+
+        if (hasItemGeometry(mCurrentPosition)) {
+            jumpIndicatorTo(getItemLeft(mCurrentPosition), getItemWidth(mCurrentPosition));
+        }
+        invalidate();
+    }
+
+    /**
+     * 设置是否开启性能统计，开启后会记录每个阶段的次数和耗时，并在Android 4.3以上加上Trace的标记，
+     * 关闭时统计被清除
+     */
+    public void setMetricsEnabled(boolean enabled) {
+        if (enabled && mMetrics == null) {
+            mMetrics = new TabScrollMetrics();
+            mGestureMetrics = new TabScrollMetrics();
+        } else if (!enabled) {
+            mMetrics = null;
+            mGestureMetrics = null;
+            mGestureMetricsActive = false;
+        }
+    }
+
+    /**
+     * @return 开启性能统计后到现在的统计快照，没有开启时返回null
+     */
+    public TabScrollMetrics getMetrics() {
+        return mMetrics != null ? mMetrics.copy() : null;
+    }
+
+    public void resetMetrics() {
+        if (mMetrics != null) {
+            mMetrics.reset();
+        }
+    }
+
+    /**
+     * 设置每次手势结束后的性能统计回调，需要先开启性能统计
+     */
+    public void setOnMetricsListener(OnMetricsListener l) {
+        mMetricsListener = l;
+    }
+
+    /**
+     * 设置惯性滚动停下时和Item的对齐方式，对齐后的位置在松手时就计算好，只需要一次动画
+     */
+    public void setSnapMode(TabLayoutEngine.SnapMode mode) {
+        mSnapMode = mode == null ? TabLayoutEngine.SnapMode.NONE : mode;
+    }
+
+    /**
+     * 设置是否在拖动、惯性滚动、滚动到选中的Item以及页面滚动期间给Item开启硬件层，
+     * 滚动停下后关闭，Item很多没有虚拟化时不会开启
+     */
+    public void setAnimationLayersEnabled(boolean enabled) {
+        mAnimationLayersEnabled = enabled;
+        updateItemLayers();
+    }
+
+    /**
+     * 设置滑动到开头结尾后是否还能继续滑动
+     */
+    public void setOverMoveSupport(boolean isOverMoveSupport) {
+        mOverMoveSupport = isOverMoveSupport;
+    }
+
+    /**
+     * 设置Tab的位置
+     */
+    public void setTabState(TabState state) {
+        mTabState = state;
+        requestLayout();
+    }
+
+    /**
+     * 设置Item宽度的模式
+     */
+    public void setItemWidthMode(boolean isAverage) {
+        mTabWidthAverage = isAverage;
+    }
+
+    /**
+     * 设置每个Item之间的距离
+     */
+    public void setVerticalSpacing(int space) {
+        mVerticalSpace = space;
+    }
+
+    /**
+     * 设置TabView和Item之间的距离
+     */
+    public void setTabSpacing(int space) {
+        mTabViewSpace = space;
+    }
+
+    /**
+     * 设置TextTabInterface的文字大小，单位px
+     */
+    public void setTabTextSize(float size) {
+        mTextPaint.setTextSize(size);
+        onTextStyleChanged();
+    }
+
+    /**
+     * 设置TextTabInterface的文字颜色，选中的Item使用state_selected的颜色
+     */
+    public void setTabTextColor(ColorStateList colors) {
+        mTextColor = colors != null ? colors : ColorStateList.valueOf(Color.DKGRAY);
+        invalidate();
+    }
+
+    public void setTabTextColor(int color) {
+        setTabTextColor(ColorStateList.valueOf(color));
+    }
+
+    public void setTabTypeface(Typeface typeface) {
+        mTextPaint.setTypeface(typeface);
+        onTextStyleChanged();
+    }
+
+    /**
+     * 设置TextTabInterface的文字到Item边缘的距离
+     */
+    public void setTabTextPadding(int horizontal, int vertical) {
+        mTextPaddingHorizontal = horizontal;
+        mTextPaddingVertical = vertical;
+        onTextStyleChanged();
+    }
+
+    /**
+     * 文字的样式改变后所有的文字都需要重新测量和排版
+     */
+    private void onTextStyleChanged() {
+        if (isTextItems()) {
+            mItemWidths = null;
+            mTextLayouts.clear();
+            mItemsChanged = true;
+            requestLayout();
+            invalidate();
+        }
     }
 
-    @Override
-    public void computeScroll() {
-        if (mScroller.computeScrollOffset()) {
-            scrollTo(mScroller.getCurrX(), mScroller.getCurrY());
-            postInvalidate();
-        } else {
-            changScrollState();
+    /**
+     * 设置是否只创建可见区域内的Item，Item很多时可以减少View的数量和每一帧测量绘制的开销。
+     * <p>
+     * 只有TabInterface实现了RecycleTabInterface时才生效：测量时用同一个Item依次绑定每个位置，
+     * 移出可见区域的Item也会被复用。没有实现时每个位置都需要创建一个View，这时按非虚拟化模式处理
+     */
+    public void setVirtualized(boolean virtualized) {
+        if (mVirtualized != virtualized) {
+            mVirtualized = virtualized;
+            reLayoutViews();
         }
     }
 
-    private boolean needScroll() {
-        return mWidth > mLayoutWidth;
+    /**
+     * 设置回收Item用的TabItemPool，多个TabScrollLayout设置同一个TabItemPool后可以复用彼此回收的Item，
+     * 虚拟化模式下从界面上移除时也会回收所有的Item，为null时使用自己的TabItemPool
+     */
+    public void setItemPool(TabItemPool pool) {
+        mSharedItemPool = pool != null;
+        mItemPool = pool != null ? pool : new TabItemPool();
     }
 
-    private void changScrollState() {
-        if (mScrollListener == null) {
-            return;
-        }
+    public TabItemPool getItemPool() {
+        return mItemPool;
+    }
 
-        if (!needScroll()) {
-            mScrollListener.onScroll(false, false, false, true);
-        } else {
-            final float scrollX = getScrollX();
+    /**
+     * 设置是否异步准备Item，开启后不会在设置数据时创建所有的Item，TabInterface实现了AsyncTabInterface时
+     * 在后台线程中准备Item的内容，准备好的Item在之后的每一帧中分批创建，可见区域的Item优先
+     */
+    public void setAsyncItemPreparation(boolean async) {
+        if (mAsyncItems != async) {
+            mAsyncItems = async;
+            reLayoutViews();
+        }
+    }
 
-            if (scrollX < 3) {
-                mScrollListener.onScroll(true, false, false, false);
-            } else if (scrollX + mLayoutWidth >= mWidth - 3) {
-                mScrollListener.onScroll(false, false, true, false);
-            } else {
-                mScrollListener.onScroll(false, true, false, false);
-            }
+    /**
+     * 设置虚拟化模式下可见区域两侧额外保留的Item数量
+     */
+    public void setOffscreenTabLimit(int limit) {
+        mOffscreenTabLimit = Math.max(0, limit);
+        if (isVirtualized()) {
+            requestLayout();
         }
     }
 
-    @Override
-    protected void onLayout(boolean changed, int l, int t, int r, int b) {
-        if (mTabInterface != null && mTabInterface.getCount() > 0) {
-            final int childCount = mTabInterface.getCount();
-
-            int left = 0;
-            int height = getMeasuredHeight();
-
-            if (mTabWidthAverage) {
-                for (int i = 0; i < childCount; i++) {
-                    final View child = getChildAt(i);
-                    if (child.getId() != ID_TAB_LAYOUT) {
-                        final int width = child.getMeasuredWidth();
-                        child.layout(left, 0, left + width, height);
-                        left += width;
-                    }
-                }
-            } else if (mWidth < mLayoutWidth) {
-                int margin = (mLayoutWidth - mWidth) / childCount / 2;
-
-                for (int i = 0; i < childCount; i++) {
-                    final View child = getChildAt(i);
-                    MarginLayoutParams params = (MarginLayoutParams) child.getLayoutParams();
-                    params.leftMargin += margin;
-                    params.rightMargin += margin;
-                    child.setLayoutParams(params);
-                    mWidth += margin * 2;
-                }
-            } else {
-                for (int i = 0; i < childCount; i++) {
-                    final View child = getChildAt(i);
-
-                    if (child.getId() != ID_TAB_LAYOUT) {
-                        int cl = mVerticalSpace + left;
-                        int cr = cl + child.getMeasuredWidth();
-                        child.layout(cl, 0, cr, height);
-                        left += mVerticalSpace + child.getMeasuredWidth();
-                    }
-                }
-            }
+    /**
+     * 已经绑定了ViewPagerSource(包括setViewPager)时返回这个来源，不会改变绑定；
+     * 还没有绑定页面来源时绑定一个没有ViewPager的ViewPagerSource并返回，
+     * 这时返回的监听器需要自己设置给ViewPager，点击Item时不会切换页面
+     *
+     * @return 没有数据或者绑定了其它类型的页面来源时返回null
+     * @deprecated 使用setViewPager或者setPagerSource(new ViewPagerSource(pager))
+     */
+    @Deprecated
+    public ViewPager.OnPageChangeListener getOnPageChangeListener() {
+        if (mPagerSource instanceof ViewPagerSource) {
+            return (ViewPagerSource) mPagerSource;
         }
 
-        if (mTabLayout != null) {
-            if (mTabState == TabState.TOP) {
-                mTabLayout.layout(0, 0, mWidth, mTabLayout.getMeasuredHeight());
-            } else {
-                mTabLayout.layout(0, getHeight() - mTabLayout.getMeasuredHeight(), mWidth, getHeight());
-            }
+        if (mTabInterface == null || mPagerSource != null) {
+            return null;
         }
+
+        final ViewPagerSource source = new ViewPagerSource(null);
+        setPagerSource(source);
+        return source;
     }
 
-    @Override
-    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
-        int width = 0;
-        int height = 0;
+    /**
+     * @Description: 设置滚动监听器
+     * @author lWX216769
+     * @date 2014-6-20
+     */
+    public void setOnScrollListener(OnScrollListener l) {
+        mScrollListener = l;
+        mScrollEdgeState = SCROLL_EDGE_UNKNOWN;
 
-        final int parenWidth = MeasureSpec.getSize(widthMeasureSpec);
-        final int count = getChildCount();
+        changScrollState();
+    }
 
-        if (mTabWidthAverage && count >= 2) {
-            int averageWidth = parenWidth / (count - 1);
-            final int nWidthMeasureSpec = MeasureSpec.makeMeasureSpec(averageWidth, MeasureSpec.EXACTLY);
-            for (int i = 0; i < count; i++) {
-                final View child = getChildAt(i);
+    /**
+     * 设置连续的滚动进度监听器，滚动时每一帧最多回调一次
+     */
+    public void setOnScrollProgressListener(OnScrollProgressListener l) {
+        mScrollProgressListener = l;
 
-                if (child.getId() != ID_TAB_LAYOUT) {
-                    child.measure(nWidthMeasureSpec, heightMeasureSpec);
-                }
-                height = Math.max(child.getMeasuredHeight(), height);
-            }
-            width = parenWidth;
-        } else {
-            final int nWidthMeasureSpec = MeasureSpec.makeMeasureSpec(parenWidth, MeasureSpec.UNSPECIFIED);
-            for (int i = 0; i < count; i++) {
-                final View child = getChildAt(i);
+        scheduleScrollProgress();
+    }
 
-                if (child.getId() != ID_TAB_LAYOUT) {
-                    measureChild(child, nWidthMeasureSpec, heightMeasureSpec);
-                    final LayoutParams params = (LayoutParams) child.getLayoutParams();
-                    width += child.getMeasuredWidth() + params.leftMargin + params.rightMargin;
-                }
+    /**
+     * @Description: 设置item选中改变的监听器
+     * @author lWX216769
+     * @date 2014-6-20
+     */
+    public void setOnItemSelectListener(OnItemSelectListener l) {
+        mSelectListener = l;
+    }
+
+    /**
+     * 移动到某个位置
+     */
+    public void smoothScrollToPosition(int position) {
+        scrollToPosition(position, true);
+    }
+
+    /**
+     * 选中并移动到position位置
+     *
+     * @param animate 为false时直接跳过去；为true时如果目标离当前位置超过一屏，先直接跳到离目标一屏的地方，
+     *                再用动画滚动剩下的距离，不会绘制中间经过的所有Item
+     */
+    public void scrollToPosition(int position, boolean animate) {
+        if (mTabInterface == null || position < 0 || position >= mTabInterface.getCount()) {
+            return;
+        }
+
+        if (!isAttachedToWindow) {
+            // 还没有显示时在第一次布局中直接移动过去，确定位置后只通知一次
+            setCurrentPositionInternal(position);
+            mSelectionResolved = false;
+            mSelectionNotifyPending = true;
+            requestLayout();
+            return;
+        }
 
-                height = Math.max(child.getMeasuredHeight(), height);
+        if (animate && hasItemGeometry(position)) {
+            final int scrollX = getScrollX();
+            final int targetX = mLayoutEngine.computeRevealScrollX(position, scrollX);
+
+            if (Math.abs(targetX - scrollX) > mLayoutWidth) {
+                mScroller.abortAnimation();
+                final int jumpX = targetX > scrollX ? targetX - mLayoutWidth : targetX + mLayoutWidth;
+                scrollTo(mLayoutEngine.clampScrollX(jumpX), 0);
             }
         }
 
-        mWidth = width;
+        performItemSelect(position, false, animate);
+    }
 
-        mLayoutWidth = parenWidth;
+    /**
+     * @return void
+     * @Description: 向左移动半个屏幕
+     * @author lWX216769
+     * @date 2014-6-4
+     */
+    public void moveLeft() {
+        final int scrollRight = getScrollX() + mLayoutWidth;
 
-        measureTab(height);
+        int deltaX = mLayoutWidth / 2;
 
-        if (mLayoutWidth < 300) {
-            mLitterMove = mLayoutWidth / 5;
-        } else if (mLayoutWidth < 600) {
-            mLitterMove = (int) (mLayoutWidth / 4.5f);
-        } else {
-            mLitterMove = (int) (mLayoutWidth / 3.5);
+        if (scrollRight + deltaX > mWidth) {
+            deltaX = mWidth - scrollRight;
         }
 
-        setMeasuredDimension(getDefaultSize(width, widthMeasureSpec), height);
+        mScroller.startScroll(getScrollX(), 0, deltaX, 0);
+        startAnimationFrames();
     }
 
-    @Override
-    protected boolean checkLayoutParams(ViewGroup.LayoutParams p) {
-        return p instanceof LayoutParams;
-    }
+    /**
+     * @return void
+     * @Description: 向右移动半个屏幕
+     * @author lWX216769
+     * @date 2014-6-4
+     */
+    public void moveRight() {
+        final int scrollLeft = getScrollX();
 
-    @Override
-    public LayoutParams generateLayoutParams(AttributeSet attrs) {
-        return new LayoutParams(getContext(), attrs);
-    }
+        int deltaX = mLayoutWidth / 2;
 
-    @Override
-    protected LayoutParams generateDefaultLayoutParams() {
-        return new LayoutParams(LayoutParams.WRAP_CONTENT, LayoutParams.WRAP_CONTENT);
-    }
+        if (scrollLeft - deltaX < 0) {
+            deltaX = scrollLeft;
+        }
 
-    @Override
-    protected LayoutParams generateLayoutParams(ViewGroup.LayoutParams p) {
-        return new LayoutParams(p);
+        mScroller.startScroll(scrollLeft, 0, -deltaX, 0);
+        startAnimationFrames();
     }
 
-    public static class LayoutParams extends MarginLayoutParams {
+    /**
+     * 数据整体改变后重新创建所有的Item，TabInterface实现了StableIdTabInterface时选中的Item跟着id移动
+     */
+    public void notifyDataSetChanged() {
+        mItemIdPositionsValid = false;
 
-        public LayoutParams(int arg0, int arg1) {
-            super(arg0, arg1);
+        if (mSelectedItemId != NO_ID) {
+            final int position = findPositionForItemId(mSelectedItemId);
+            if (position >= 0) {
+                mCurrentPosition = position;
+            }
         }
 
-        public LayoutParams(ViewGroup.LayoutParams arg0) {
-            super(arg0);
+        reLayoutViews();
+    }
+
+    /**
+     * 通过StableIdTabInterface的id找到Item现在的位置
+     *
+     * @return 没有找到或者TabInterface没有实现StableIdTabInterface时返回-1
+     */
+    public int findPositionForItemId(long itemId) {
+        if (!(mTabInterface instanceof StableIdTabInterface)) {
+            return -1;
         }
 
-        public LayoutParams(MarginLayoutParams arg0) {
-            super(arg0);
+        if (!mItemIdPositionsValid) {
+            final StableIdTabInterface adapter = (StableIdTabInterface) mTabInterface;
+            mItemIdPositions.clear();
+            for (int i = 0, count = adapter.getCount(); i < count; i++) {
+                mItemIdPositions.put(adapter.getItemId(i), i);
+            }
+            mItemIdPositionsValid = true;
         }
 
-        public LayoutParams(Context arg0, AttributeSet arg1) {
-            super(arg0, arg1);
+        final Integer position = mItemIdPositions.get(itemId);
+        return position == null ? -1 : position;
+    }
+
+    private long getStableItemId(int position) {
+        if (!(mTabInterface instanceof StableIdTabInterface) || position < 0 || position >= mTabInterface.getCount()) {
+            return NO_ID;
         }
+        return ((StableIdTabInterface) mTabInterface).getItemId(position);
     }
 
     /**
-     * 有阻力的ScrollBy();
+     * 只重新绑定position位置的Item，不会改变滚动的位置和选中的Item
      */
-    private void resistanceScrollBy(float overScroll, float scrollby) {
-        scrollBy((int) (scrollby * (mLayoutWidth - Math.abs(overScroll)) / mLayoutWidth * 0.5), 0);
-    }
+    public void notifyItemChanged(int position) {
+        if (mTabInterface == null || position < 0 || position >= mTabInterface.getCount()) {
+            return;
+        }
 
-    @Override
-    public boolean dispatchTouchEvent(MotionEvent ev) {
-        mDetector.onTouchEvent(ev);
+        final View old = getItemView(position);
+        if (old != null) {
+            final View v = bindItemView(position, old);
+            if (v != old) {
+                final int index = indexOfChild(old);
+                removeViewAt(index);
+                addView(v, index);
+            }
 
-        if (ev.getAction() == MotionEvent.ACTION_UP) {
-            onUp();
+            if (isPositionKeyed()) {
+                mActiveViews.put(position, v);
+            }
+        }
 
-            MotionEvent e = MotionEvent.obtain(ev);
-            e.setAction(MotionEvent.ACTION_CANCEL);
-            super.dispatchTouchEvent(e);
-            e.recycle();
+        if (isPositionKeyed() && mItemWidths != null && position < mItemWidths.length) {
+            mItemWidths[position] = -1;
         }
 
-        return true;
+        onItemsChanged();
     }
 
-    public void onUp() {
-
-        final int scrollX = getScrollX();
-
-        if (!needScroll()) {
-            mScroller.startScroll(scrollX, 0, -scrollX, 0);
-            postInvalidate();
+    /**
+     * 在position位置插入了一个Item，只创建这一个Item，不会改变滚动的位置和选中的Item
+     */
+    public void notifyItemInserted(int position) {
+        if (mTabInterface == null || position < 0 || position >= mTabInterface.getCount()) {
             return;
         }
 
-        if (scrollX < 0) {
-            mScroller.startScroll(scrollX, 0, -scrollX, 0);
-            postInvalidate();
-        } else {
-            final int s = scrollX + mLayoutWidth - mWidth;
+        if (mTabInterface.getCount() > 1 && mCurrentPosition >= position) {
+            mCurrentPosition++;
+        }
 
-            if (s > 0) {
-                mScroller.startScroll(scrollX, 0, -s, 0);
-                postInvalidate();
+        if (isPositionKeyed()) {
+            final SparseArray<View> activeViews = new SparseArray<View>(mActiveViews.size());
+            for (int i = 0; i < mActiveViews.size(); i++) {
+                final int p = mActiveViews.keyAt(i);
+                putActiveView(activeViews, p >= position ? p + 1 : p, mActiveViews.valueAt(i));
             }
+            mActiveViews = activeViews;
+
+            if (mItemWidths != null) {
+                final int[] widths = new int[mItemWidths.length + 1];
+                System.arraycopy(mItemWidths, 0, widths, 0, position);
+                System.arraycopy(mItemWidths, position, widths, position + 1, mItemWidths.length - position);
+                widths[position] = -1;
+                mItemWidths = widths;
+            }
+        } else {
+            final View v = bindItemView(position, null);
+            addView(v, position);
+            renumberItems(position + 1, mTabInterface.getCount() - 1);
         }
 
-        changScrollState();
+        onItemsChanged();
     }
 
-    @Override
-    public boolean onDown(MotionEvent e) {
-        mScroller.abortAnimation();
-        super.dispatchTouchEvent(e);
-        isEventCancel = false;
-        return false;
-    }
+    /**
+     * position位置的Item被移除了，只移除这一个Item，不会改变滚动的位置，
+     * 移除的是选中的Item时选中同一个位置上的Item
+     */
+    public void notifyItemRemoved(int position) {
+        if (mTabInterface == null || position < 0 || position > mTabInterface.getCount()) {
+            return;
+        }
 
-    @Override
-    public void onShowPress(MotionEvent e) {
+        if (mCurrentPosition > position || mCurrentPosition >= mTabInterface.getCount()) {
+            mCurrentPosition = Math.max(0, mCurrentPosition - 1);
+        }
 
-    }
+        if (isPositionKeyed()) {
+            final SparseArray<View> activeViews = new SparseArray<View>(mActiveViews.size());
+            for (int i = 0; i < mActiveViews.size(); i++) {
+                final int p = mActiveViews.keyAt(i);
+                final View v = mActiveViews.valueAt(i);
+                if (p == position) {
+                    removeView(v);
+                    recycleItemView(v);
+                } else {
+                    putActiveView(activeViews, p > position ? p - 1 : p, v);
+                }
+            }
+            mActiveViews = activeViews;
 
-    @Override
-    public boolean onSingleTapUp(MotionEvent e) {
-        MotionEvent up = MotionEvent.obtain(e);
-        up.setAction(MotionEvent.ACTION_UP);
-        super.dispatchTouchEvent(up);
-        up.recycle();
-        return true;
-    }
+            if (mItemWidths != null && position < mItemWidths.length) {
+                final int[] widths = new int[mItemWidths.length - 1];
+                System.arraycopy(mItemWidths, 0, widths, 0, position);
+                System.arraycopy(mItemWidths, position + 1, widths, position, widths.length - position);
+                mItemWidths = widths;
+            }
+        } else {
+            removeViewAt(position);
+            renumberItems(position, mTabInterface.getCount() - 1);
+        }
 
-    @Override
-    public boolean onScroll(MotionEvent e1, MotionEvent e2, float distanceX, float distanceY) {
+        onItemsChanged();
+    }
 
-        if (!isEventCancel) {
-            MotionEvent cancel = MotionEvent.obtain(e1);
-            cancel.setAction(MotionEvent.ACTION_CANCEL);
-            super.dispatchTouchEvent(cancel);
-            cancel.recycle();
-            isEventCancel = true;
+    /**
+     * Item从fromPosition移动到了toPosition，不会重新创建Item，选中的Item跟着移动
+     */
+    public void notifyItemMoved(int fromPosition, int toPosition) {
+        if (mTabInterface == null || fromPosition == toPosition || fromPosition < 0 || toPosition < 0
+                || fromPosition >= mTabInterface.getCount() || toPosition >= mTabInterface.getCount()) {
+            return;
         }
 
-        final int scrollX = getScrollX();
-        if (scrollX <= 0 && distanceX <= 0) {
-            if (mOverMoveSupport) {
-                resistanceScrollBy(scrollX, distanceX);
+        mCurrentPosition = getMovedPosition(mCurrentPosition, fromPosition, toPosition);
 
-                changScrollState();
+        if (isPositionKeyed()) {
+            final SparseArray<View> activeViews = new SparseArray<View>(mActiveViews.size());
+            for (int i = 0; i < mActiveViews.size(); i++) {
+                putActiveView(activeViews, getMovedPosition(mActiveViews.keyAt(i), fromPosition, toPosition),
+                        mActiveViews.valueAt(i));
             }
-        } else if (scrollX + mLayoutWidth >= mWidth && distanceX >= 0) {
-            if (mOverMoveSupport) {
-                resistanceScrollBy(scrollX + mLayoutWidth - mWidth, distanceX);
+            mActiveViews = activeViews;
 
-                changScrollState();
+            if (mItemWidths != null) {
+                final int width = mItemWidths[fromPosition];
+                if (fromPosition < toPosition) {
+                    System.arraycopy(mItemWidths, fromPosition + 1, mItemWidths, fromPosition, toPosition - fromPosition);
+                } else {
+                    System.arraycopy(mItemWidths, toPosition, mItemWidths, toPosition + 1, fromPosition - toPosition);
+                }
+                mItemWidths[toPosition] = width;
             }
         } else {
-            scrollBy((int) distanceX, 0);
+            final View v = getChildAt(fromPosition);
+            detachViewFromParent(fromPosition);
+            attachViewToParent(v, toPosition, v.getLayoutParams());
+            renumberItems(Math.min(fromPosition, toPosition), Math.max(fromPosition, toPosition));
+        }
 
-            changScrollState();
+        onItemsChanged();
+    }
+
+    private static int getMovedPosition(int position, int fromPosition, int toPosition) {
+        if (position == fromPosition) {
+            return toPosition;
         }
-        return true;
+        if (fromPosition < toPosition && position > fromPosition && position <= toPosition) {
+            return position - 1;
+        }
+        if (fromPosition > toPosition && position >= toPosition && position < fromPosition) {
+            return position + 1;
+        }
+        return position;
     }
 
-    @Override
-    public void onLongPress(MotionEvent e) {
+    private void putActiveView(SparseArray<View> activeViews, int position, View v) {
+        setItemPosition(v, position);
+        v.setSelected(position == mCurrentPosition);
+        activeViews.put(position, v);
+    }
 
+    /**
+     * 非虚拟化模式下Item的位置改变后更新Item的位置和选中状态
+     */
+    private void renumberItems(int from, int to) {
+        for (int i = from; i <= to; i++) {
+            final View child = getChildAt(i);
+            setItemPosition(child, i);
+            child.setSelected(i == mCurrentPosition);
+        }
     }
 
-    @Override
-    public boolean onFling(MotionEvent e1, MotionEvent e2, float velocityX, float velocityY) {
-        final float deltaX = e1.getX() - e2.getX();
-        final float deltaY = e1.getY() - e2.getY();
+    private void onItemsChanged() {
+        // 文字的排版只缓存了可见区域内的，position改变后直接重新排版
+        mTextLayouts.clear();
+
+        final View selected = getItemView(mCurrentPosition);
+        if (selected != null) {
+            selected.setSelected(true);
+        }
+
+        mItemIdPositionsValid = false;
+        mSelectedItemId = getStableItemId(mCurrentPosition);
 
-        if (Math.abs(deltaX) > Math.abs(deltaY)) {
-            int scrolledX = getScrollX();
-            float scroll = -velocityX * 0.07f;
+        if (mAsyncItems) {
+            // position改变后之前准备的内容不能再使用，重新准备还没有测量的Item
+            mPreparedItems.clear();
+            restartItemPreparation();
+        }
+
+        mItemsChanged = true;
+        requestLayout();
+        invalidate();
+    }
 
-            if (scrolledX + scroll < 0) {
-                scroll = -scrolledX;
-            } else if (scrolledX + mLayoutWidth + scroll > mWidth) {
-                scroll = mWidth - scrolledX - mLayoutWidth;
+    /**
+     * @deprecated 直接调用ViewPager的addOnPageChangeListener，TabScrollLayout不会替换ViewPager上的监听器
+     */
+    @Deprecated
+    public void setOnPageChangeListener(ViewPager.OnPageChangeListener l) {
+        if (mViewPager != null) {
+            if (mPageChangeListener != null) {
+                mViewPager.removeOnPageChangeListener(mPageChangeListener);
+            }
+            if (l != null) {
+                mViewPager.addOnPageChangeListener(l);
             }
-
-            mScroller.fling(getScrollX(), getScrollY(), (int) -velocityX, 0, 0, mWidth - mLayoutWidth, 0, 0,
-                    mOverMoveSupport ? mLayoutWidth / 3 : 0, 0);
-            postInvalidate();
         }
-        return false;
+        mPageChangeListener = l;
     }
 
-    public final Handler mHandler = new Handler() {
-        public void handleMessage(android.os.Message msg) {
-            View clickView = findViewById(msg.what);
-            moveFull(clickView);
-            mTabLayout.scrollToView(clickView, getScrollX());
-        }
-    };
-
     /**
-     * @Description: 移动布局将上一个或者下一个控件的部分显示出来
+     * @Description: 设置每个选项的数据，数据可以是任意类型，控件会调用Object的toString()方法设置成每个选项的文字
      * @author lWX216769
-     * @date 2014-7-1
+     * @date 2014-6-20
      */
-    private void moveFull(View view) {
-        if (!needScroll()) {
-            changScrollState();
-            return;
+    public void setTabInterface(TabInterface adapter) {
+        removeAllItems();
+        setTabInterfaceInternal(adapter);
+        reLayoutViews();
+    }
+
+    /**
+     * 在列表中复用TabScrollLayout时绑定一行的数据，复用已有的Item重新绑定，
+     * 并恢复这一行的选中位置和滚动位置，在下一次布局中一次完成，不会先滚动到开头。
+     * <p>
+     * TabInterface实现了RecycleTabInterface时才能复用Item，类型不同的Item会被回收，
+     * 之前没有数据或者开启了异步模式时和setTabInterface一样重新创建所有的Item
+     *
+     * @param state saveRowState保存的状态，为null时选中第一个Item
+     */
+    public void bind(TabInterface adapter, RowState state) {
+        // 文字模式和View模式之间切换时没有可以复用的Item，
+        // 是否实现RecycleTabInterface会改变是否虚拟化，管理Item的方式不同时也不能复用
+        final boolean rebind = mTabInterface != null && adapter != null && !mAsyncItems
+                && isTextItems() == adapter instanceof TextTabInterface
+                && isPositionKeyed() == isPositionKeyed(adapter);
+
+        if (!rebind) {
+            removeAllItems();
         }
+        setTabInterfaceInternal(adapter);
 
-        final int scrollLeft = getScrollX();
-        final int left = view.getLeft();
+        // 先确定选中的位置，重新绑定Item时直接设置选中状态
+        final int count = adapter == null ? 0 : adapter.getCount();
+        mCurrentPosition = state == null ? 0 : Math.max(0, Math.min(state.position, count - 1));
 
-        if (mLitterMove > left - scrollLeft) {
-            int deltaX = scrollLeft - left + mLitterMove;
+        if (rebind) {
+            rebindItems();
+        } else {
+            reLayoutViews();
+        }
 
-            if (deltaX > scrollLeft) {
-                deltaX = scrollLeft;
-            }
+        mRestoredScrollX = state == null ? -1 : state.scrollX;
+        mSelectionResolved = false;
+        // 恢复的是这一行保存的选中位置，不再通知之前设置的选中
+        mSelectionNotifyPending = false;
+        if (mRestoredScrollX < 0) {
+            scrollTo(0, 0);
+        }
 
-            mScroller.startScroll(scrollLeft, 0, -deltaX, 0);
-            postInvalidate();
+        mItemIdPositionsValid = false;
+        mSelectedItemId = getStableItemId(mCurrentPosition);
 
-            return;
-        }
+        requestLayout();
+        invalidate();
+    }
 
-        final int scrollRight = scrollLeft + mLayoutWidth;
-        final int right = view.getRight();
-        final int hide = right - scrollRight;
+    /**
+     * 用新的数据重新绑定已有的Item，多余的Item被回收，不够的Item在测量或者布局时补上
+     */
+    private void rebindItems() {
+        final long start = beginSection(TabScrollMetrics.SECTION_RELAYOUT_VIEWS);
 
-        if (hide > 0 || Math.abs(hide) < mLitterMove) {
-            int deltaX = 0;
+        final int count = mTabInterface.getCount();
 
-            if (hide > 0) {
-                deltaX = mLitterMove + hide;
-            } else {
-                deltaX = hide + mLitterMove;
+        removeCallbacks(mScrollToSelectionRunnable);
+        mPendingScrollPosition = -1;
+        mScroller.abortAnimation();
+        resetItemLayers();
+        mItemWidths = null;
+        mTextLayouts.clear();
+        mPreparedItems.clear();
+        // 测量之前不使用上一行的Item位置
+        mLayoutEngine.reset();
+        mItemsChanged = true;
+
+        if (isPositionKeyed()) {
+            final SparseArray<View> activeViews = new SparseArray<View>(mActiveViews.size());
+            for (int i = 0; i < mActiveViews.size(); i++) {
+                final int position = mActiveViews.keyAt(i);
+                final View old = mActiveViews.valueAt(i);
+                final View v = isTextItems() ? null : rebindItemView(position, old, count);
+
+                if (v == null) {
+                    removeViewInLayout(old);
+                    recycleItemView(old);
+                } else {
+                    if (v != old) {
+                        removeViewInLayout(old);
+                        addViewInLayout(v, mTabLayout != null ? indexOfChild(mTabLayout) : -1, v.getLayoutParams(), true);
+                    }
+                    activeViews.put(position, v);
+                }
             }
+            mActiveViews = activeViews;
+        } else {
+            final int oldCount = getChildCount() - (mTabLayout != null ? 1 : 0);
 
-            if (scrollRight + deltaX > mWidth) {
-                deltaX = mWidth - scrollRight;
+            for (int i = oldCount - 1; i >= count; i--) {
+                final View old = getChildAt(i);
+                removeViewInLayout(old);
+                recycleItemView(old);
             }
 
-            mScroller.startScroll(scrollLeft, 0, deltaX, 0);
-            postInvalidate();
-        }
-    }
+            for (int i = 0; i < count; i++) {
+                final View old = i < oldCount ? getChildAt(i) : null;
+                View v = old != null ? rebindItemView(i, old, count) : null;
 
-    public int getCurrentItem() {
-        if (mTabInterface == null || mTabInterface.getCount() == 0) {
-            return -1;
+                if (v == null) {
+                    if (old != null) {
+                        removeViewInLayout(old);
+                        recycleItemView(old);
+                    }
+                    v = obtainItemView(i);
+                }
+
+                if (v != old) {
+                    if (old != null && old.getParent() == this) {
+                        removeViewInLayout(old);
+                    }
+                    addViewInLayout(v, i, v.getLayoutParams(), true);
+                }
+            }
         }
-        return mCurrentPosition;
-    }
 
-    /**
-     * 设置Tab的层级，是在Item之上还是Item之下
-     */
-    public void setTabZIndexAbove(boolean isAbove) {
-        mTabLayoutAbove = isAbove;
-        invalidate();
+        endSection(TabScrollMetrics.SECTION_RELAYOUT_VIEWS, start);
     }
 
     /**
-     * 设置滑动到开头结尾后是否还能继续滑动
+     * 用convertView重新绑定position位置的Item
+     *
+     * @return 绑定后的Item，不能复用时返回null
      */
-    public void setOverMoveSupport(boolean isOverMoveSupport) {
-        mOverMoveSupport = isOverMoveSupport;
+    private View rebindItemView(int position, View convertView, int count) {
+        if (position >= count || !(mTabInterface instanceof RecycleTabInterface)
+                || ((LayoutParams) convertView.getLayoutParams()).viewType != getItemViewType(position)) {
+            return null;
+        }
+        return bindItemView(position, convertView);
     }
 
     /**
-     * 设置Tab的位置
+     * 保存绑定的这一行的选中位置和滚动位置，滚动还没停下时保存停下的位置
+     *
+     * @param out 可以复用的对象，为null时创建新的
      */
-    public void setTabState(TabState state) {
-        mTabState = state;
-        requestLayout();
+    public RowState saveRowState(RowState out) {
+        final RowState state = out != null ? out : new RowState();
+        state.position = mCurrentPosition;
+        if (!mSelectionResolved) {
+            state.scrollX = mRestoredScrollX;
+        } else {
+            state.scrollX = mScroller.isFinished() ? getScrollX() : mScroller.getFinalX();
+        }
+        return state;
     }
 
     /**
-     * 设置Item宽度的模式
+     * 列表中每一行的TabScrollLayout的状态，由列表的Adapter按行保存，再通过bind恢复
+     *
+     * @see TabScrollLayout#saveRowState(RowState)
+     * @see TabScrollLayout#bind(TabInterface, RowState)
      */
-    public void setItemWidthMode(boolean isAverage) {
-        mTabWidthAverage = isAverage;
-    }
+    public static class RowState {
+        int position;
 
-    /**
-     * 设置每个Item之间的距离
-     */
-    public void setVerticalSpacing(int space) {
-        mVerticalSpace = space;
-    }
+        /**
+         * 为-1时按选中的Item决定滚动位置
+         */
+        int scrollX = -1;
 
-    /**
-     * 设置TabView和Item之间的距离
-     */
-    public void setTabSpacing(int space) {
-        mTabViewSpace = space;
-    }
+        public int getPosition() {
+            return position;
+        }
 
-    public ViewPager.OnPageChangeListener getOnPageChangeListener() {
-        if (mTabInterface == null) {
-            return null;
+        public int getScrollX() {
+            return scrollX;
         }
-        return new ViewPagerOnPositionChangeListener();
     }
 
-    /**
-     * @Description: 设置滚动监听器
-     * @author lWX216769
-     * @date 2014-6-20
-     */
-    public void setOnScrollListener(OnScrollListener l) {
-        mScrollListener = l;
+    private void setTabInterfaceInternal(TabInterface adapter) {
+        if (mTabInterface instanceof ObservableTabInterface) {
+            ((ObservableTabInterface) mTabInterface).unregisterTabDataObserver(mDataObserver);
+        }
 
-        changScrollState();
+        mTabInterface = adapter;
+        if (!mSharedItemPool) {
+            mItemPool.clear();
+        }
+
+        if (adapter instanceof ObservableTabInterface) {
+            ((ObservableTabInterface) adapter).registerTabDataObserver(mDataObserver);
+        }
     }
 
     /**
-     * @Description: 设置item选中改变的监听器
-     * @author lWX216769
-     * @date 2014-6-20
+     * 绑定ViewPager，ViewPager的Adapter实现了TabInterface时同时作为数据，
+     * 通过addOnPageChangeListener监听，不会影响ViewPager上已有的监听器
      */
-    public void setOnItemSelectListener(OnItemSelectListener l) {
-        mSelectListener = l;
+    public void setViewPager(ViewPager pager) {
+        if (mViewPager != null && mPageChangeListener != null) {
+            mViewPager.removeOnPageChangeListener(mPageChangeListener);
+        }
+
+        mViewPager = pager;
+        PagerAdapter adapter = pager.getAdapter();
+
+        if (adapter != null && adapter instanceof TabInterface) {
+            removeAllItems();
+            setTabInterfaceInternal((TabInterface) adapter);
+        }
+
+        if (mPageChangeListener != null) {
+            pager.addOnPageChangeListener(mPageChangeListener);
+        }
+
+        setPagerSource(new ViewPagerSource(pager));
+        reLayoutViews();
     }
 
     /**
-     * 移动到某个位置
+     * 设置控制Tab位置的页面来源，页面滚动时每一帧只读取一次页面的位置并移动一次Tab
+     *
+     * @param source 为null时解除绑定
      */
-    public void smoothScrollToPosition(int position) {
-        if (mTabInterface != null && position >= 0 && position < mTabInterface.getCount()) {
-            if (isAttachedToWindow) {
-                onClick(getChildAt(position));
-            } else {
-                mCurrentPosition = position;
+    public void setPagerSource(PagerSource source) {
+        if (mPagerSource != null) {
+            mPagerSource.setCallback(null);
+        }
+
+        mPagerSource = source;
+        mLastPageOffset = Float.NaN;
+        mPagerScrollState = PagerSource.SCROLL_STATE_IDLE;
+
+        if (source != null) {
+            source.setCallback(mPagerCallback);
+
+            final int page = source.getCurrentPage();
+            if (page >= 0 && page != mCurrentPosition) {
+                setCurrentPositionInternal(page);
+                mSelectionResolved = false;
+                requestLayout();
             }
         }
     }
 
     /**
-     * @return void
-     * @Description: 向左移动半个屏幕
-     * @author lWX216769
-     * @date 2014-6-4
+     * 读取页面来源当前的状态，选中的页面改变时选中对应的Item，
+     * 不管是手指拖动还是切换页面引起的滚动，Tab都在相邻两个Item之间插值
      */
-    public void moveLeft() {
-        final int scrollRight = getScrollX() + mLayoutWidth;
-
-        int deltaX = mLayoutWidth / 2;
+    private void pullPagerState() {
+        final PagerSource source = mPagerSource;
+        if (source == null || mTabInterface == null) {
+            return;
+        }
 
-        if (scrollRight + deltaX > mWidth) {
-            deltaX = mWidth - scrollRight;
+        final int page = source.getCurrentPage();
+        if (page != mCurrentPosition && page >= 0 && page < mTabInterface.getCount()) {
+            performItemSelect(page, true);
         }
 
-        mScroller.startScroll(getScrollX(), 0, deltaX, 0);
-        postInvalidate();
-    }
+        final int state = source.getScrollState();
+        if (state != mPagerScrollState) {
+            mPagerScrollState = state;
+            updateItemLayers();
 
-    /**
-     * @return void
-     * @Description: 向右移动半个屏幕
-     * @author lWX216769
-     * @date 2014-6-4
-     */
-    public void moveRight() {
-        final int scrollLeft = getScrollX();
+            if (state == PagerSource.SCROLL_STATE_DRAGGING && !isViewVisitableFullInScreen(mCurrentPosition)) {
+                scrollToSelection(mCurrentPosition);
+            }
+        }
 
-        int deltaX = mLayoutWidth / 2;
+        final float offset = source.getPageOffset();
+        if (offset == mLastPageOffset || (state == PagerSource.SCROLL_STATE_IDLE && Float.isNaN(mLastPageOffset))) {
+            // 绑定后还没有滚动过时Tab的位置由选中的Item确定
+            mLastPageOffset = offset;
+            return;
+        }
+        mLastPageOffset = offset;
 
-        if (scrollLeft - deltaX < 0) {
-            deltaX = scrollLeft;
+        final int position = (int) Math.floor(offset);
+        if (!hasIndicator() || !hasItemGeometry(position)) {
+            return;
         }
 
-        mScroller.startScroll(scrollLeft, 0, -deltaX, 0);
-        postInvalidate();
+        final float positionOffset = offset - position;
+        final int left = getItemLeft(position);
+        final int width = getItemWidth(position);
+
+        if (positionOffset > 0 && hasItemGeometry(position + 1)) {
+            jumpIndicatorTo(left + (getItemLeft(position + 1) - left) * positionOffset,
+                    width + (getItemWidth(position + 1) - width) * positionOffset);
+        } else {
+            jumpIndicatorTo(left, width);
+        }
     }
 
-    public void notifyDataSetChanged() {
-        reLayoutViews();
+    @Override
+    protected Parcelable onSaveInstanceState() {
+        final SavedState ss = new SavedState(super.onSaveInstanceState());
+        ss.position = mCurrentPosition;
+        ss.scrollX = getScrollX();
+        return ss;
     }
 
-    public void setOnPageChangeListener(ViewPager.OnPageChangeListener l) {
-        mPageChangeListener = l;
+    @Override
+    protected void onRestoreInstanceState(Parcelable state) {
+        if (!(state instanceof SavedState)) {
+            super.onRestoreInstanceState(state);
+            return;
+        }
+
+        final SavedState ss = (SavedState) state;
+        super.onRestoreInstanceState(ss.getSuperState());
+
+        setCurrentPositionInternal(ss.position);
+        mRestoredScrollX = ss.scrollX;
+        mSelectionResolved = false;
+        requestLayout();
     }
 
     /**
-     * @Description: 设置每个选项的数据，数据可以是任意类型，控件会调用Object的toString()方法设置成每个选项的文字
-     * @author lWX216769
-     * @date 2014-6-20
+     * 保存选中的位置和滚动的位置，Tab的位置在恢复后的第一次布局中由选中的Item确定
      */
-    public void setTabInterface(TabInterface adapter) {
-        mTabInterface = adapter;
-        reLayoutViews();
-    }
+    static class SavedState extends BaseSavedState {
+        int position;
+        int scrollX;
 
-    public void setViewPager(ViewPager pager) {
-        mViewPager = pager;
-        PagerAdapter adapter = pager.getAdapter();
+        SavedState(Parcelable superState) {
+            super(superState);
+        }
 
-        if (adapter != null && adapter instanceof TabInterface) {
-            mTabInterface = (TabInterface) adapter;
-            pager.setOnPageChangeListener(getOnPageChangeListener());
+        private SavedState(Parcel in) {
+            super(in);
+            position = in.readInt();
+            scrollX = in.readInt();
         }
 
-        reLayoutViews();
+        @Override
+        public void writeToParcel(Parcel out, int flags) {
+            super.writeToParcel(out, flags);
+            out.writeInt(position);
+            out.writeInt(scrollX);
+        }
+
+        public static final Parcelable.Creator<SavedState> CREATOR = new Parcelable.Creator<SavedState>() {
+            @Override
+            public SavedState createFromParcel(Parcel in) {
+                return new SavedState(in);
+            }
+
+            @Override
+            public SavedState[] newArray(int size) {
+                return new SavedState[size];
+            }
+        };
     }
 
     private class TabLayout extends ViewGroup {
-        Scroller mWidthScroller;
-        Scroller mPositionScroller;
-
         View mTabView;
 
         int mHeight;
@@ -807,31 +3527,6 @@ public class TabScrollLayout extends ViewGroup implements GestureDetector.OnGest
 
         public TabLayout(Context context) {
             super(context);
-            mWidthScroller = new Scroller(context, new LinearInterpolator());
-            mPositionScroller = new Scroller(context, new LinearInterpolator());
-        }
-
-        @Override
-        public void computeScroll() {
-            if (mTabView == null) {
-                return;
-            }
-
-            boolean hasChange = false;
-
-            if (mWidthScroller.computeScrollOffset()) {
-                mTabView.layout(0, 0, mWidthScroller.getCurrX(), mHeight);
-                hasChange = true;
-            }
-
-            if (mPositionScroller.computeScrollOffset()) {
-                scrollTo(mPositionScroller.getCurrX(), mPositionScroller.getCurrY());
-                hasChange = true;
-            }
-
-            if (hasChange) {
-                postInvalidate();
-            }
         }
 
         public void setTabView(View view) {
@@ -872,18 +3567,16 @@ public class TabScrollLayout extends ViewGroup implements GestureDetector.OnGest
             return dp2px(2);
         }
 
-        public void scrollToView(View view, int parentScrollX) {
+        /**
+         * 把Tab移动到left的位置，宽度设置为width，动画由TabScrollLayout统一推进，
+         * 直接改变Tab的位置只会刷新Tab移动前后的区域，不会刷新整个TabLayout
+         */
+        public void setTabBounds(int left, int width) {
             if (mTabView == null) {
                 return;
             }
 
-            if (view.getWidth() != mTabView.getWidth()) {
-                mWidthScroller.startScroll(mTabView.getWidth(), 0, view.getWidth() - mTabView.getWidth(), 0, 200);
-            }
-
-            mPositionScroller.startScroll(getScrollX(), 0, -(getScrollX() + view.getLeft()), 0, 200);
-
-            postInvalidate();
+            mTabView.layout(left, 0, left + width, mHeight);
         }
 
         @Override
@@ -891,80 +3584,4 @@ public class TabScrollLayout extends ViewGroup implements GestureDetector.OnGest
 
         }
     }
-
-    /**
-     * ViewPager控制Tab滚动的OnPageChangeListener
-     *
-     * @author lWX216769
-     * @date 2014-7-2
-     */
-    private class ViewPagerOnPositionChangeListener implements ViewPager.OnPageChangeListener {
-
-        boolean inTouch = false;
-
-        @Override
-        public void onPageScrollStateChanged(int state) {
-            if (mPageChangeListener != null) {
-                mPageChangeListener.onPageScrollStateChanged(state);
-            }
-
-            inTouch = state == 1 ? true : inTouch;
-
-            if (state == 1 && !isViewVisitableFullInScreen(mCurrentPosition)) {
-                mHandler.sendEmptyMessage(mCurrentPosition);
-            }
-        }
-
-        @Override
-        public void onPageScrolled(int position, float positionOffset, int positionOffsetPixels) {
-            if (mPageChangeListener != null) {
-                mPageChangeListener.onPageScrolled(position, positionOffset, positionOffsetPixels);
-            }
-
-            if (!inTouch || mTabLayout.mTabView == null) {
-                return;
-            }
-
-            // 向右滑动
-            if (position == mCurrentPosition) {
-                View current = getChildAt(position);
-                View target = getChildAt(position + 1);
-
-                int deltaX = (int) ((target.getLeft() - current.getLeft()) * positionOffset);
-                int deltaWidth = (int) ((target.getWidth() - current.getWidth()) * positionOffset);
-
-                mTabLayout.scrollTo(-(current.getLeft() + deltaX), 0);
-
-                final View v = mTabLayout.mTabView;
-                v.layout(v.getLeft(), v.getTop(), v.getLeft() + current.getWidth() + deltaWidth, v.getBottom());
-            }
-            // 向左滑动
-            else if (position < mCurrentPosition) {
-                View current = getChildAt(position + 1);
-                View target = getChildAt(position);
-
-                float change = 1 - positionOffset;
-
-                int deltaX = (int) ((current.getLeft() - target.getLeft()) * change);
-                int deltaWidth = (int) ((target.getWidth() - current.getWidth()) * change);
-
-                mTabLayout.scrollTo(-current.getLeft() + deltaX, 0);
-
-                final View v = mTabLayout.mTabView;
-                v.layout(v.getLeft(), v.getTop(), v.getLeft() + current.getWidth() + deltaWidth, v.getBottom());
-            }
-        }
-
-        @Override
-        public void onPageSelected(int position) {
-            if (mPageChangeListener != null) {
-                mPageChangeListener.onPageSelected(position);
-            }
-
-            if (inTouch) {
-                onClick(getChildAt(position));
-                inTouch = false;
-            }
-        }
-    }
 }
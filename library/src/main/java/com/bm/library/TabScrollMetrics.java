@@ -0,0 +1,100 @@
+package com.bm.library;
+
+/**
+ * TabScrollLayout的性能统计，记录每个阶段执行的次数和耗时，以及刷新的次数
+ *
+ * @see TabScrollLayout#setMetricsEnabled(boolean)
+ */
+public class TabScrollMetrics {
+
+    public static final int SECTION_MEASURE = 0;
+    public static final int SECTION_LAYOUT = 1;
+    public static final int SECTION_DRAW = 2;
+    public static final int SECTION_ANIMATION_FRAME = 3;
+    public static final int SECTION_RELAYOUT_VIEWS = 4;
+    public static final int SECTION_GET_TAB_ITEM = 5;
+
+    static final String[] SECTION_NAMES = {
+            "TabScrollLayout#onMeasure",
+            "TabScrollLayout#onLayout",
+            "TabScrollLayout#dispatchDraw",
+            "TabScrollLayout#animationFrame",
+            "TabScrollLayout#reLayoutViews",
+            "TabScrollLayout#getTabItem"
+    };
+
+    private final int[] mCounts = new int[SECTION_NAMES.length];
+    private final long[] mTimeNanos = new long[SECTION_NAMES.length];
+    private int mInvalidateCount;
+
+    TabScrollMetrics() {
+    }
+
+    private TabScrollMetrics(TabScrollMetrics source) {
+        System.arraycopy(source.mCounts, 0, mCounts, 0, mCounts.length);
+        System.arraycopy(source.mTimeNanos, 0, mTimeNanos, 0, mTimeNanos.length);
+        mInvalidateCount = source.mInvalidateCount;
+    }
+
+    void record(int section, long nanos) {
+        mCounts[section]++;
+        mTimeNanos[section] += nanos;
+    }
+
+    void recordInvalidate() {
+        mInvalidateCount++;
+    }
+
+    void reset() {
+        for (int i = 0; i < mCounts.length; i++) {
+            mCounts[i] = 0;
+            mTimeNanos[i] = 0;
+        }
+        mInvalidateCount = 0;
+    }
+
+    TabScrollMetrics copy() {
+        return new TabScrollMetrics(this);
+    }
+
+    /**
+     * @param section SECTION_开头的常量
+     * @return 这个阶段执行的次数
+     */
+    public int getCount(int section) {
+        return mCounts[section];
+    }
+
+    /**
+     * @param section SECTION_开头的常量
+     * @return 这个阶段总共的耗时，单位纳秒
+     */
+    public long getTimeNanos(int section) {
+        return mTimeNanos[section];
+    }
+
+    /**
+     * @return 动画推进的帧数
+     */
+    public int getAnimationFrameCount() {
+        return mCounts[SECTION_ANIMATION_FRAME];
+    }
+
+    /**
+     * @return 请求刷新的次数，包括invalidate和滚动引起的刷新
+     */
+    public int getInvalidateCount() {
+        return mInvalidateCount;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("TabScrollMetrics{");
+        for (int i = 0; i < SECTION_NAMES.length; i++) {
+            sb.append(SECTION_NAMES[i].substring(SECTION_NAMES[i].indexOf('#') + 1))
+                    .append('=').append(mCounts[i])
+                    .append('/').append(mTimeNanos[i] / 1000).append("us, ");
+        }
+        return sb.append("invalidate=").append(mInvalidateCount).append('}').toString();
+    }
+}
@@ -0,0 +1,88 @@
+package com.bm.library;
+
+import android.support.v4.view.ViewPager;
+
+/**
+ * 把ViewPager作为TabScrollLayout的页面来源，通过addOnPageChangeListener监听，不会替换应用已经设置的监听器，
+ * 每次回调只记录页面的位置，TabScrollLayout每一帧读取一次
+ */
+public class ViewPagerSource implements TabScrollLayout.PagerSource, ViewPager.OnPageChangeListener {
+
+    private final ViewPager mPager;
+    private Callback mCallback;
+
+    private int mPosition;
+    private float mPositionOffset;
+    private int mSelectedPage;
+    private int mScrollState = SCROLL_STATE_IDLE;
+
+    /**
+     * @param pager 为null时需要自己把这个对象设置为ViewPager的监听器，点击Item时不会切换页面
+     */
+    public ViewPagerSource(ViewPager pager) {
+        mPager = pager;
+
+        if (pager != null) {
+            mPosition = mSelectedPage = pager.getCurrentItem();
+        }
+    }
+
+    @Override
+    public void setCallback(Callback callback) {
+        if (mPager != null) {
+            if (mCallback == null && callback != null) {
+                mPager.addOnPageChangeListener(this);
+            } else if (mCallback != null && callback == null) {
+                mPager.removeOnPageChangeListener(this);
+            }
+        }
+        mCallback = callback;
+    }
+
+    @Override
+    public float getPageOffset() {
+        return mPosition + mPositionOffset;
+    }
+
+    @Override
+    public int getCurrentPage() {
+        return mSelectedPage;
+    }
+
+    @Override
+    public int getScrollState() {
+        return mScrollState;
+    }
+
+    @Override
+    public void setCurrentPage(int page, boolean smooth) {
+        if (mPager != null) {
+            mPager.setCurrentItem(page, smooth);
+        }
+    }
+
+    @Override
+    public void onPageScrolled(int position, float positionOffset, int positionOffsetPixels) {
+        mPosition = position;
+        mPositionOffset = positionOffset;
+        notifyChanged();
+    }
+
+    @Override
+    public void onPageSelected(int position) {
+        mSelectedPage = position;
+        notifyChanged();
+    }
+
+    @Override
+    public void onPageScrollStateChanged(int state) {
+        mScrollState = state;
+        notifyChanged();
+    }
+
+    private void notifyChanged() {
+        if (mCallback != null) {
+            mCallback.onPagerChanged();
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.bm.library;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * 收集基准测试的结果并写成JSON，放在build/reports/benchmarks下，方便在不同版本之间比较
+ */
+class BenchmarkReporter {
+
+    private final String mName;
+    private final StringBuilder mResults = new StringBuilder();
+
+    BenchmarkReporter(String name) {
+        mName = name;
+    }
+
+    /**
+     * @param samples 每次执行的耗时，单位纳秒
+     */
+    void report(String benchmark, int tabCount, long[] samples) {
+        final long[] sorted = samples.clone();
+        Arrays.sort(sorted);
+
+        long total = 0;
+        for (long sample : sorted) {
+            total += sample;
+        }
+
+        final String result = String.format("{\"benchmark\":\"%s\",\"tabs\":%d,\"iterations\":%d,"
+                        + "\"minNanos\":%d,\"medianNanos\":%d,\"meanNanos\":%d,\"maxNanos\":%d}",
+                benchmark, tabCount, sorted.length, sorted[0], sorted[sorted.length / 2],
+                total / sorted.length, sorted[sorted.length - 1]);
+
+        if (mResults.length() > 0) {
+            mResults.append(",\n");
+        }
+        mResults.append("    ").append(result);
+    }
+
+    void write() throws IOException {
+        final File dir = new File("build/reports/benchmarks");
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Can not create " + dir);
+        }
+
+        final FileWriter writer = new FileWriter(new File(dir, mName + ".json"));
+        try {
+            writer.write("{\"name\":\"" + mName + "\",\"results\":[\n" + mResults + "\n]}\n");
+        } finally {
+            writer.close();
+        }
+    }
+}
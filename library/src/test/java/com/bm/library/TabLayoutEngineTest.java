@@ -0,0 +1,220 @@
+package com.bm.library;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * TabLayoutEngine不依赖Android，直接在JVM上验证位置和滚动的计算
+ */
+public class TabLayoutEngineTest {
+
+    private static final int SPACING = 10;
+    private static final int CONTAINER_WIDTH = 300;
+
+    /**
+     * 内容比控件宽: 10 [0]100 10 [1]200 10 [2]150 10，总宽度490
+     */
+    private static final int[] WIDE_WIDTHS = {100, 200, 150};
+
+    private TabLayoutEngine mEngine;
+
+    @Before
+    public void setUp() {
+        mEngine = new TabLayoutEngine();
+        mEngine.setSpacing(SPACING);
+    }
+
+    @Test
+    public void layoutPlacesItemsWithSpacing() {
+        mEngine.layout(WIDE_WIDTHS, 3, CONTAINER_WIDTH);
+
+        assertEquals(3, mEngine.getCount());
+        assertEquals(10, mEngine.getLeft(0));
+        assertEquals(110, mEngine.getRight(0));
+        assertEquals(120, mEngine.getLeft(1));
+        assertEquals(200, mEngine.getWidth(1));
+        assertEquals(330, mEngine.getLeft(2));
+        assertEquals(480, mEngine.getRight(2));
+        assertEquals(490, mEngine.getTotalWidth());
+        assertEquals(CONTAINER_WIDTH, mEngine.getContainerWidth());
+        assertTrue(mEngine.needScroll());
+    }
+
+    @Test
+    public void layoutKeepsTrailingSpacing() {
+        mEngine.layout(WIDE_WIDTHS, 3, CONTAINER_WIDTH);
+
+        assertEquals(SPACING, mEngine.getTotalWidth() - mEngine.getRight(2));
+    }
+
+    @Test
+    public void layoutOnlyUsesFirstCountWidths() {
+        mEngine.layout(WIDE_WIDTHS, 2, CONTAINER_WIDTH);
+
+        assertEquals(2, mEngine.getCount());
+        assertEquals(330, mEngine.getTotalWidth());
+    }
+
+    @Test
+    public void layoutCentersNarrowContent() {
+        // 内容宽度130，剩下的270平均分给每个Item的两边，每边67
+        mEngine.layout(new int[]{50, 50}, 2, 400);
+
+        assertEquals(77, mEngine.getLeft(0));
+        assertEquals(127, mEngine.getRight(0));
+        assertEquals(271, mEngine.getLeft(1));
+        assertEquals(321, mEngine.getRight(1));
+        assertEquals(398, mEngine.getTotalWidth());
+        assertEquals(67 * 2 + SPACING, mEngine.getLeft(1) - mEngine.getRight(0));
+        assertFalse(mEngine.needScroll());
+    }
+
+    @Test
+    public void layoutAverageIgnoresSpacing() {
+        mEngine.setAverage(true);
+        final int width = mEngine.getAverageItemWidth(CONTAINER_WIDTH, 3);
+        mEngine.layout(new int[]{width, width, width}, 3, CONTAINER_WIDTH);
+
+        assertEquals(100, width);
+        assertEquals(0, mEngine.getLeft(0));
+        assertEquals(100, mEngine.getLeft(1));
+        assertEquals(200, mEngine.getLeft(2));
+        assertEquals(300, mEngine.getRight(2));
+        assertEquals(CONTAINER_WIDTH, mEngine.getTotalWidth());
+        assertFalse(mEngine.needScroll());
+    }
+
+    @Test
+    public void averageNeedsItems() {
+        mEngine.setAverage(true);
+
+        assertTrue(mEngine.isAverage(1));
+        assertFalse(mEngine.isAverage(0));
+        assertEquals(0, mEngine.getAverageItemWidth(CONTAINER_WIDTH, 0));
+    }
+
+    @Test
+    public void layoutWithoutItems() {
+        mEngine.layout(new int[0], 0, CONTAINER_WIDTH);
+
+        assertEquals(0, mEngine.getCount());
+        assertEquals(0, mEngine.getTotalWidth());
+        assertEquals(0, mEngine.getMaxScrollX());
+        assertEquals(-1, mEngine.findPosition(0));
+    }
+
+    @Test
+    public void resetClearsLayout() {
+        mEngine.layout(WIDE_WIDTHS, 3, CONTAINER_WIDTH);
+        mEngine.reset();
+
+        assertEquals(0, mEngine.getCount());
+        assertEquals(0, mEngine.getTotalWidth());
+    }
+
+    @Test
+    public void maxScrollAndClamp() {
+        mEngine.layout(WIDE_WIDTHS, 3, CONTAINER_WIDTH);
+
+        assertEquals(190, mEngine.getMaxScrollX());
+        assertEquals(0, mEngine.clampScrollX(-5));
+        assertEquals(100, mEngine.clampScrollX(100));
+        assertEquals(190, mEngine.clampScrollX(1000));
+    }
+
+    @Test
+    public void clampWithoutScroll() {
+        mEngine.layout(new int[]{50, 50}, 2, 400);
+
+        assertEquals(0, mEngine.getMaxScrollX());
+        assertEquals(0, mEngine.clampScrollX(20));
+        assertEquals(0, mEngine.clampScrollX(-20));
+    }
+
+    @Test
+    public void litterMoveByContainerWidth() {
+        assertEquals(40, TabLayoutEngine.computeLitterMove(200));
+        assertEquals(66, TabLayoutEngine.computeLitterMove(300));
+        assertEquals(171, TabLayoutEngine.computeLitterMove(600));
+    }
+
+    @Test
+    public void revealScrollStopsAtStart() {
+        mEngine.layout(WIDE_WIDTHS, 3, CONTAINER_WIDTH);
+
+        assertEquals(66, mEngine.getLitterMove());
+        // 第一个Item需要露出左边的一段，但是不能滚动到开头之前
+        assertEquals(0, mEngine.computeRevealScrollX(0, 100));
+        // 第二个Item离左边太近，向右滚动让左边露出litterMove
+        assertEquals(54, mEngine.computeRevealScrollX(1, 100));
+    }
+
+    @Test
+    public void revealScrollStopsAtEnd() {
+        mEngine.layout(WIDE_WIDTHS, 3, CONTAINER_WIDTH);
+
+        // 最后一个Item被遮住，滚动到最后但是不能超过最大滚动距离
+        assertEquals(190, mEngine.computeRevealScrollX(2, 0));
+        // 第二个Item的右边离控件右边太近，向左滚动露出下一个Item
+        assertEquals(86, mEngine.computeRevealScrollX(1, 50));
+    }
+
+    @Test
+    public void revealScrollWithoutScroll() {
+        mEngine.layout(new int[]{50, 50}, 2, 400);
+
+        assertEquals(0, mEngine.computeRevealScrollX(1, 0));
+        assertEquals(5, mEngine.computeRevealScrollX(0, 5));
+    }
+
+    @Test
+    public void snapNoneOnlyClamps() {
+        mEngine.layout(WIDE_WIDTHS, 3, CONTAINER_WIDTH);
+
+        assertEquals(50, mEngine.computeSnapScrollX(50, TabLayoutEngine.SnapMode.NONE));
+        assertEquals(190, mEngine.computeSnapScrollX(250, TabLayoutEngine.SnapMode.NONE));
+        assertEquals(0, mEngine.computeSnapScrollX(-30, TabLayoutEngine.SnapMode.NONE));
+    }
+
+    @Test
+    public void snapStartToNearestLeft() {
+        mEngine.layout(WIDE_WIDTHS, 3, CONTAINER_WIDTH);
+
+        assertEquals(10, mEngine.computeSnapScrollX(40, TabLayoutEngine.SnapMode.START));
+        assertEquals(120, mEngine.computeSnapScrollX(100, TabLayoutEngine.SnapMode.START));
+        // 对齐最后一个Item会超过最大滚动距离
+        assertEquals(190, mEngine.computeSnapScrollX(300, TabLayoutEngine.SnapMode.START));
+    }
+
+    @Test
+    public void snapCenterToNearestCenter() {
+        mEngine.layout(WIDE_WIDTHS, 3, CONTAINER_WIDTH);
+
+        // 控件中间250，第二个Item的中间220
+        assertEquals(70, mEngine.computeSnapScrollX(100, TabLayoutEngine.SnapMode.CENTER));
+        // 控件中间340，第三个Item的中间405，超过最大滚动距离
+        assertEquals(190, mEngine.computeSnapScrollX(190, TabLayoutEngine.SnapMode.CENTER));
+    }
+
+    @Test
+    public void snapEndToNearestRight() {
+        mEngine.layout(WIDE_WIDTHS, 3, CONTAINER_WIDTH);
+
+        // 控件右边300，第二个Item的右边320
+        assertEquals(20, mEngine.computeSnapScrollX(0, TabLayoutEngine.SnapMode.END));
+        // 控件右边450，第三个Item的右边480
+        assertEquals(180, mEngine.computeSnapScrollX(150, TabLayoutEngine.SnapMode.END));
+    }
+
+    @Test
+    public void snapWithoutScroll() {
+        mEngine.layout(new int[]{50, 50}, 2, 400);
+
+        assertEquals(0, mEngine.computeSnapScrollX(5, TabLayoutEngine.SnapMode.START));
+        assertEquals(0, mEngine.computeSnapScrollX(5, TabLayoutEngine.SnapMode.CENTER));
+    }
+}
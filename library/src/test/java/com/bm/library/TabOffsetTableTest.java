@@ -0,0 +1,90 @@
+package com.bm.library;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * TabOffsetTable的查找，Item之间有间隔: [0]10~110 [1]120~320 [2]330~480
+ */
+public class TabOffsetTableTest {
+
+    private TabOffsetTable mTable;
+
+    @Before
+    public void setUp() {
+        mTable = new TabOffsetTable();
+        mTable.reset(3);
+        mTable.setItem(0, 10, 100);
+        mTable.setItem(1, 120, 200);
+        mTable.setItem(2, 330, 150);
+    }
+
+    @Test
+    public void storesItems() {
+        assertEquals(3, mTable.getCount());
+        assertEquals(120, mTable.getLeft(1));
+        assertEquals(200, mTable.getWidth(1));
+        assertEquals(320, mTable.getRight(1));
+    }
+
+    @Test
+    public void findsItemAtLeftEdge() {
+        assertEquals(0, mTable.findPosition(10));
+        assertEquals(1, mTable.findPosition(120));
+        assertEquals(2, mTable.findPosition(330));
+    }
+
+    @Test
+    public void findsItemBeforeNextLeft() {
+        assertEquals(0, mTable.findPosition(119));
+        assertEquals(1, mTable.findPosition(329));
+    }
+
+    @Test
+    public void gapBelongsToLeftItem() {
+        assertEquals(0, mTable.findPosition(115));
+        assertEquals(1, mTable.findPosition(325));
+    }
+
+    @Test
+    public void clampsBeforeFirstItem() {
+        // 第一个Item之前的位置不返回-1，调用者需要自己检查x是否在Item内
+        assertEquals(0, mTable.findPosition(0));
+        assertEquals(0, mTable.findPosition(-100));
+    }
+
+    @Test
+    public void clampsAfterLastItem() {
+        assertEquals(2, mTable.findPosition(480));
+        assertEquals(2, mTable.findPosition(10000));
+    }
+
+    @Test
+    public void emptyTable() {
+        mTable.reset(0);
+
+        assertEquals(0, mTable.getCount());
+        assertEquals(-1, mTable.findPosition(0));
+    }
+
+    @Test
+    public void singleItem() {
+        mTable.reset(1);
+        mTable.setItem(0, 5, 10);
+
+        assertEquals(0, mTable.findPosition(-1));
+        assertEquals(0, mTable.findPosition(5));
+        assertEquals(0, mTable.findPosition(100));
+    }
+
+    @Test
+    public void resetKeepsCapacity() {
+        mTable.reset(1);
+        mTable.reset(3);
+
+        assertEquals(3, mTable.getCount());
+        assertEquals(330, mTable.getLeft(2));
+    }
+}
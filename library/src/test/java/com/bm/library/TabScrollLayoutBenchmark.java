@@ -0,0 +1,220 @@
+package com.bm.library;
+
+import android.app.Activity;
+import android.view.MotionEvent;
+import android.view.View;
+import android.widget.TextView;
+
+import org.junit.AfterClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.io.IOException;
+
+/**
+ * 在JVM上测量TabScrollLayout主要路径的耗时随Item数量的变化，结果写在build/reports/benchmarks下
+ *
+ * 默认不运行，运行: ./gradlew :library:testDebugUnitTest -Pbenchmark --tests com.bm.library.TabScrollLayoutBenchmark
+ */
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class TabScrollLayoutBenchmark {
+
+    private static final int[] TAB_COUNTS = {10, 100, 1000, 10000};
+    private static final int WARMUP_ITERATIONS = 3;
+    private static final int ITERATIONS = 10;
+
+    private static final int WIDTH = 1080;
+    private static final int HEIGHT = 144;
+    private static final int FRAME_MILLIS = 16;
+    private static final int MAX_FLING_FRAMES = 120;
+
+    private static final BenchmarkReporter sReporter = new BenchmarkReporter("TabScrollLayoutBenchmark");
+
+    @AfterClass
+    public static void writeResults() throws IOException {
+        sReporter.write();
+    }
+
+    /**
+     * 只请求布局，MeasureSpec不变时Item使用上一次测量的宽度
+     */
+    @Test
+    public void measureAndLayoutCached() {
+        measureAndLayoutCached("measureAndLayoutCached", false);
+    }
+
+    /**
+     * 每次改变宽度，所有的Item都需要重新测量
+     */
+    @Test
+    public void measureAndLayoutUncached() {
+        measureAndLayoutUncached("measureAndLayoutUncached", false);
+    }
+
+    @Test
+    public void measureAndLayoutVirtualizedCached() {
+        measureAndLayoutCached("measureAndLayoutVirtualizedCached", true);
+    }
+
+    @Test
+    public void measureAndLayoutVirtualizedUncached() {
+        measureAndLayoutUncached("measureAndLayoutVirtualizedUncached", true);
+    }
+
+    private static void measureAndLayoutCached(String benchmark, boolean virtualized) {
+        for (int count : TAB_COUNTS) {
+            final TabScrollLayout layout = createLayout(count, virtualized);
+            run(benchmark, count, new Task() {
+                @Override
+                void run(int iteration) {
+                    layout.requestLayout();
+                    measureAndLayout(layout);
+                }
+            });
+        }
+    }
+
+    private static void measureAndLayoutUncached(String benchmark, boolean virtualized) {
+        for (int count : TAB_COUNTS) {
+            final TabScrollLayout layout = createLayout(count, virtualized);
+            run(benchmark, count, new Task() {
+                // 预热和测量的iteration都从0开始，单独计数保证相邻两次的宽度不同
+                private int mRound;
+
+                @Override
+                void run(int iteration) {
+                    // Item的MeasureSpec随宽度改变，TabScrollLayout和Item自己的测量缓存都不会命中
+                    layout.requestLayout();
+                    measureAndLayout(layout, WIDTH - 1 - mRound++ % 2);
+                }
+            });
+        }
+    }
+
+    @Test
+    public void notifyDataSetChanged() {
+        for (int count : TAB_COUNTS) {
+            final TabScrollLayout layout = createLayout(count, false);
+            run("notifyDataSetChanged", count, new Task() {
+                @Override
+                void run(int iteration) {
+                    layout.notifyDataSetChanged();
+                    measureAndLayout(layout);
+                }
+            });
+        }
+    }
+
+    @Test
+    public void selectTab() {
+        for (final int count : TAB_COUNTS) {
+            final TabScrollLayout layout = createLayout(count, false);
+            run("selectTab", count, new Task() {
+                @Override
+                void run(int iteration) {
+                    layout.getChildAt(iteration * 7 % count).performClick();
+                    ShadowLooper.idleMainLooper(FRAME_MILLIS);
+                }
+            });
+        }
+    }
+
+    @Test
+    public void fling() {
+        for (int count : TAB_COUNTS) {
+            final TabScrollLayout layout = createLayout(count, false);
+            // 快速向左滑动，经过touch slop后拦截并开始惯性滚动
+            final MotionEvent[] events = new MotionEvent[]{
+                    MotionEvent.obtain(0, 0, MotionEvent.ACTION_DOWN, WIDTH * 3 / 4, HEIGHT / 2, 0),
+                    MotionEvent.obtain(0, 10, MotionEvent.ACTION_MOVE, WIDTH * 5 / 8, HEIGHT / 2, 0),
+                    MotionEvent.obtain(0, 20, MotionEvent.ACTION_MOVE, WIDTH / 2, HEIGHT / 2, 0),
+                    MotionEvent.obtain(0, 30, MotionEvent.ACTION_MOVE, WIDTH * 3 / 8, HEIGHT / 2, 0),
+                    MotionEvent.obtain(0, 30, MotionEvent.ACTION_UP, WIDTH * 3 / 8, HEIGHT / 2, 0)
+            };
+
+            run("fling", count, new Task() {
+                @Override
+                void run(int iteration) {
+                    layout.scrollTo(0, 0);
+                    for (MotionEvent event : events) {
+                        layout.dispatchTouchEvent(event);
+                    }
+                    for (int frame = 0; frame < MAX_FLING_FRAMES; frame++) {
+                        ShadowLooper.idleMainLooper(FRAME_MILLIS);
+                    }
+                }
+            });
+
+            for (MotionEvent event : events) {
+                event.recycle();
+            }
+        }
+    }
+
+    private static TabScrollLayout createLayout(final int count, boolean virtualized) {
+        final Activity activity = Robolectric.buildActivity(Activity.class).create().start().resume().visible().get();
+        final TabScrollLayout layout = new TabScrollLayout(activity);
+        layout.setVirtualized(virtualized);
+        layout.setTabInterface(new TabScrollLayout.RecycleTabInterface() {
+            @Override
+            public View getTabView() {
+                return new View(activity);
+            }
+
+            @Override
+            public View getTabItem(int position) {
+                return getTabItem(position, null);
+            }
+
+            @Override
+            public View getTabItem(int position, View convertView) {
+                final TextView v = convertView != null ? (TextView) convertView : new TextView(activity);
+                v.setText("Tab " + position);
+                return v;
+            }
+
+            @Override
+            public int getCount() {
+                return count;
+            }
+        });
+
+        activity.setContentView(layout);
+        measureAndLayout(layout);
+        return layout;
+    }
+
+    private static void measureAndLayout(TabScrollLayout layout) {
+        measureAndLayout(layout, WIDTH);
+    }
+
+    private static void measureAndLayout(TabScrollLayout layout, int width) {
+        layout.measure(View.MeasureSpec.makeMeasureSpec(width, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(HEIGHT, View.MeasureSpec.AT_MOST));
+        layout.layout(0, 0, layout.getMeasuredWidth(), layout.getMeasuredHeight());
+    }
+
+    private static void run(String benchmark, int tabCount, Task task) {
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            task.run(i);
+        }
+
+        final long[] samples = new long[ITERATIONS];
+        for (int i = 0; i < ITERATIONS; i++) {
+            final long start = System.nanoTime();
+            task.run(i);
+            samples[i] = System.nanoTime() - start;
+        }
+
+        sReporter.report(benchmark, tabCount, samples);
+    }
+
+    private static abstract class Task {
+        abstract void run(int iteration);
+    }
+}